@@ -1,5 +1,6 @@
 package com.github.david32768.jynxfree;
 
+import java.io.PrintWriter;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -12,6 +13,7 @@ import com.github.david32768.jynxfree.jynx.Global;
 import com.github.david32768.jynxfree.jynx.GlobalOption;
 import com.github.david32768.jynxfree.jynx.MainOption;
 import com.github.david32768.jynxfree.jynx.SevereError;
+import com.github.david32768.jynxfree.jynx.ValidationCache;
 
 public class Main {
     
@@ -78,7 +80,7 @@ public class Main {
         return mainopt;
     }
     
-    private static boolean mainz(String[] args) {
+    static boolean mainz(PrintWriter pw, String[] args) {
         Optional<MainOption> optmain = getMainOption(args);
         if (!optmain.isPresent()) {
             return false;
@@ -94,13 +96,16 @@ public class Main {
         }
         boolean success;
         try {
-            success = main.run(mainargs);
+            success = main.run(pw, mainargs);
         } catch (SevereError ex) {
             if (OPTION(GlobalOption.DEBUG)) {
-                ex.printStackTrace();;
+                ex.printStackTrace(Global.ERR());
             }
             success = false;
         }
+        var stats = ValidationCache.stats();
+        // "validation cache since start: %d hits, %d misses, %d entries, %d clears"
+        LOG(M663, stats.hits(), stats.misses(), stats.entries(), stats.clears());
         if (!success) {
             String classname = Arrays.asList(mainargs).toString();
             LOG(M298,main.name(),classname); // "%s of %s failed"
@@ -109,7 +114,10 @@ public class Main {
     }
     
     public static void main(String[] args) {
-        boolean success = mainz(args);
+        boolean success;
+        try (PrintWriter pw = new PrintWriter(System.out)) {
+            success = mainz(pw, args);
+        }
         if (!success) {
             System.exit(1);
         }
@@ -0,0 +1,204 @@
+package com.github.david32768.jynxfree;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static com.github.david32768.jynxfree.jynx.Global.LOG;
+import static com.github.david32768.jynxfree.jynx.Global.OPTION;
+import static com.github.david32768.jynxfree.jynx.MainConstants.DAEMON_END;
+import static com.github.david32768.jynxfree.jynx.MainConstants.DAEMON_SHUTDOWN;
+import static com.github.david32768.jynxfree.my.Message.M658;
+import static com.github.david32768.jynxfree.my.Message.M659;
+import static com.github.david32768.jynxfree.my.Message.M662;
+
+import com.github.david32768.jynxfree.jvm.JvmVersion;
+import com.github.david32768.jynxfree.jynx.Global;
+import com.github.david32768.jynxfree.jynx.GlobalOption;
+import com.github.david32768.jynxfree.jynx.MainOption;
+import com.github.david32768.jynxfree.jynx.MainOptionService;
+import com.github.david32768.jynxfree.jynx.NameDesc;
+import com.github.david32768.jynxfree.jynx.SevereError;
+import com.github.david32768.jynxfree.my.Message;
+
+public class MainDaemon implements MainOptionService {
+
+    @Override
+    public MainOption main() {
+        return MainOption.DAEMON;
+    }
+
+    @Override
+    public boolean call(PrintWriter pw) {
+        if (!OPTION(GlobalOption.SYSIN)) {
+            return MainOptionService.super.call(pw);
+        }
+        warmUp();
+        LOG(M658, main().extname(), "SYSIN"); // "%s is reading requests from %s"
+        var reader = new BufferedReader(new InputStreamReader(System.in));
+        try {
+            serve(reader, pw);
+            LOG(M662, main().extname()); // "%s has stopped"
+            return true;
+        } catch (IOException ex) {
+            LOG(ex);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean call(PrintWriter pw, String socketfile) {
+        warmUp();
+        var address = UnixDomainSocketAddress.of(socketfile);
+        try {
+            deleteSocketFile(address.getPath()); // left by a daemon that did not stop normally
+        } catch (IOException ex) {
+            LOG(ex);
+            return false;
+        }
+        try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(address);
+            // e.g. interrupt or kill; the process may end before the finally below runs
+            var hook = Thread.ofPlatform().unstarted(() -> stop(server, address.getPath()));
+            Runtime.getRuntime().addShutdownHook(hook);
+            LOG(M658, main().extname(), address); // "%s is reading requests from %s"
+            try {
+                while (true) {
+                    var channel = server.accept();
+                    // each request has its own Global so connections can be served concurrently
+                    Thread.ofVirtual().start(() -> Global.callIsolated(System.err, () -> serve(channel, server)));
+                }
+            } catch (ClosedChannelException ex) {
+                // closed by a shutdown request
+            } finally {
+                removeShutdownHook(hook);
+            }
+            LOG(M662, main().extname()); // "%s has stopped"
+            return true;
+        } catch (IOException ex) {
+            LOG(ex);
+            return false;
+        } finally {
+            try {
+                deleteSocketFile(address.getPath());
+            } catch (IOException ex) {
+                LOG(ex);
+            }
+        }
+    }
+
+    // only a socket file is deleted so a mistyped name cannot remove an ordinary file
+    private static void deleteSocketFile(Path path) throws IOException {
+        if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)
+                && Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void stop(ServerSocketChannel server, Path path) {
+        try {
+            server.close();
+            deleteSocketFile(path);
+        } catch (IOException ex) {
+            // process is ending
+        }
+    }
+
+    private static void removeShutdownHook(Thread hook) {
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException ex) {
+            // shutdown in progress
+        }
+    }
+
+    private static void warmUp() {
+        // class initialisation of the large enums and service discovery before the first request
+        Message.values();
+        NameDesc.values();
+        JvmVersion.values();
+        for (var main : MainOption.values()) {
+            MainOptionService.find(main);
+        }
+    }
+
+    private static boolean serve(SocketChannel channel, ServerSocketChannel server) {
+        try (channel;
+                var reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+                var pw = new PrintWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+            if (serve(reader, pw)) {
+                server.close(); // ends the accept loop
+            }
+            return true;
+        } catch (IOException ex) {
+            LOG(ex);
+            return false;
+        }
+    }
+
+    // returns true if a shutdown was requested
+    private static boolean serve(BufferedReader reader, PrintWriter pw) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals(DAEMON_SHUTDOWN)) {
+                pw.format("%s ok%n", DAEMON_END);
+                pw.flush();
+                return true;
+            }
+            boolean success = request(pw, line);
+            pw.format("%s %s%n", DAEMON_END, success? "ok": "failed");
+            pw.flush();
+        }
+        return false;
+    }
+
+    private static boolean request(PrintWriter out, String line) {
+        String[] args = line.split(" +");
+        var output = new StringWriter();
+        var messages = new ByteArrayOutputStream();
+        boolean success;
+        try (var pw = new PrintWriter(output); var err = new PrintStream(messages)) {
+            success = Global.callIsolated(err, () -> request(pw, args));
+        }
+        out.print(messages.toString());
+        out.print(output.toString());
+        return success;
+    }
+
+    private static boolean request(PrintWriter pw, String[] args) {
+        var main = MainOption.getInstance(args[0]);
+        if (main.isPresent() && main.get() == MainOption.DAEMON) {
+            // "main option %s cannot be requested from %s"
+            LOG(M659, args[0], MainOption.DAEMON.extname());
+            return false;
+        }
+        try {
+            return Main.mainz(pw, args);
+        } catch (SevereError ex) {
+            return false;
+        } catch (RuntimeException ex) {
+            LOG(ex);
+            return false;
+        }
+    }
+
+}
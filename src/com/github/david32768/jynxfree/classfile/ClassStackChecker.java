@@ -0,0 +1,116 @@
+package com.github.david32768.jynxfree.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.MethodModel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.zip.ZipFile;
+
+import static com.github.david32768.jynxfree.jynx.Global.LOG;
+
+import com.github.david32768.jynxfree.jynx.Global;
+
+// methods are checked concurrently on the common fork-join pool; results are in class and method order
+public class ClassStackChecker {
+
+    private ClassStackChecker(){}
+
+    public record MethodResult(String method, int maxStack, boolean ok, String messages) {}
+
+    // one for each class model even if several have the same name e.g. multi-release versions
+    public record ClassResult(String classname, List<MethodResult> methods) {}
+
+    private record Task(int classindex, Supplier<MethodResult> check) {}
+
+    public static MethodResult check(MethodModel mm) {
+        return check(mm, PoolKinds.unshared());
+    }
+
+    public static MethodResult check(MethodModel mm, PoolKinds poolkinds) {
+        var checker = StackChecker.of(StackMap.of(mm), poolkinds);
+        boolean ok = true;
+        try {
+            var elements = mm.code().orElseThrow().elementList();
+            checker.setJsrLabels(elements);
+            for (var element : elements) {
+                checker.element(element);
+            }
+        } catch (RuntimeException | AssertionError ex) {
+            LOG(ex);
+            ok = false;
+        }
+        String method = mm.methodName().stringValue() + mm.methodType().stringValue();
+        return new MethodResult(method, checker.maxStack(), ok, "");
+    }
+
+    public static List<MethodResult> check(ClassModel cm) {
+        return check(List.of(cm)).getFirst().methods();
+    }
+
+    public static List<ClassResult> check(List<ClassModel> cms) {
+        return check(cms, ClassStackChecker::check);
+    }
+
+    // e.g. DataflowVerifier::check; PoolKinds are shared by the methods of a class
+    public static List<ClassResult> check(List<ClassModel> cms,
+            BiFunction<MethodModel, PoolKinds, MethodResult> checkfn) {
+        List<ClassResult> result = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>();
+        for (var cm : cms) {
+            int classindex = result.size();
+            result.add(new ClassResult(classname(cm), new ArrayList<>()));
+            var poolkinds = PoolKinds.of(cm);
+            for (var mm : cm.methods()) {
+                if (mm.code().isPresent()) {
+                    tasks.add(new Task(classindex, task(mm, poolkinds, checkfn)));
+                }
+            }
+        }
+        var results = tasks.parallelStream()
+                .map(task -> task.check().get())
+                .toList();
+        for (int i = 0; i < tasks.size(); ++i) {
+            result.get(tasks.get(i).classindex()).methods().add(results.get(i));
+        }
+        return result;
+    }
+
+    public static List<ClassResult> check(ClassFile classfile, Path jar) throws IOException {
+        List<ClassModel> cms = new ArrayList<>();
+        try (var zipfile = new ZipFile(jar.toFile())) {
+            var entries = zipfile.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                    try (var is = zipfile.getInputStream(entry)) {
+                        cms.add(classfile.parse(is.readAllBytes()));
+                    }
+                }
+            }
+        }
+        return check(cms);
+    }
+
+    private static String classname(ClassModel cm) {
+        return cm.thisClass().asInternalName();
+    }
+
+    // options are captured on this thread; messages are kept with the result
+    private static Supplier<MethodResult> task(MethodModel mm, PoolKinds poolkinds,
+            BiFunction<MethodModel, PoolKinds, MethodResult> checkfn) {
+        var messages = new ByteArrayOutputStream();
+        var op = Global.withCurrentOptions(new PrintStream(messages), () -> checkfn.apply(mm, poolkinds));
+        return () -> {
+            var result = op.call();
+            return new MethodResult(result.method(), result.maxStack(), result.ok(), messages.toString());
+        };
+    }
+
+}
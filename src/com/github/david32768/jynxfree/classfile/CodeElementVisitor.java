@@ -0,0 +1,15 @@
+package com.github.david32768.jynxfree.classfile;
+
+import java.lang.classfile.CodeElement;
+
+// receives every element of the code e.g. labels and exception handlers as well as instructions
+public interface CodeElementVisitor {
+
+    public void element(CodeElement element);
+
+    // true if no further elements are required
+    public default boolean isFinished() {
+        return false;
+    }
+
+}
@@ -0,0 +1,357 @@
+package com.github.david32768.jynxfree.classfile;
+
+import java.lang.classfile.instruction.*;
+
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.Instruction;
+import java.lang.classfile.Opcode;
+import java.util.Arrays;
+
+// one dispatch of each instruction is passed on to all visitors that are not finished
+// other elements e.g. labels are passed on to all visitors
+// so element visitors such as StackChecker share the walk with instruction visitors
+// element visitors that are not instruction visitors are given the instruction
+// each method has its own loop so no call object is created for each instruction
+public class CompositeInstructionVisitor implements InstructionVisitor {
+
+    private CodeElementVisitor[] active;
+
+    private CompositeInstructionVisitor(CodeElementVisitor[] visitors) {
+        this.active = visitors;
+    }
+
+    public static CompositeInstructionVisitor of(CodeElementVisitor... visitors) {
+        var composite = new CompositeInstructionVisitor(visitors.clone());
+        composite.prune();
+        return composite;
+    }
+
+    private void prune() {
+        for (var visitor : active) {
+            if (visitor.isFinished()) {
+                active = Arrays.stream(active)
+                        .filter(v -> !v.isFinished())
+                        .toArray(CodeElementVisitor[]::new);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void element(CodeElement element) {
+        if (element instanceof Instruction inst) {
+            InstructionVisitor.visit(this, inst);
+            return;
+        }
+        for (var visitor : active) {
+            visitor.element(element);
+        }
+        prune();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return active.length == 0;
+    }
+
+    @Override
+    public void arrayLoad(Opcode op, ArrayLoadInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.arrayLoad(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void arrayStore(Opcode op, ArrayStoreInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.arrayStore(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void branch(Opcode op, BranchInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.branch(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void constant(Opcode op, ConstantInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.constant(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void convert(Opcode op, ConvertInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.convert(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void discontinued(Opcode op, DiscontinuedInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.discontinued(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void field(Opcode op, FieldInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.field(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void invokeDynamic(Opcode op, InvokeDynamicInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.invokeDynamic(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void invoke(Opcode op, InvokeInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.invoke(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void increment(Opcode op, IncrementInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.increment(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void load(Opcode op, LoadInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.load(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void store(Opcode op, StoreInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.store(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void lookupSwitch(Opcode op, LookupSwitchInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.lookupSwitch(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void monitor(Opcode op, MonitorInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.monitor(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void newMultiArray(Opcode op, NewMultiArrayInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.newMultiArray(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void newObject(Opcode op, NewObjectInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.newObject(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void newPrimitiveArray(Opcode op, NewPrimitiveArrayInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.newPrimitiveArray(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void newReferenceArray(Opcode op, NewReferenceArrayInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.newReferenceArray(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void nop(Opcode op, NopInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.nop(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void operator(Opcode op, OperatorInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.operator(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void return_(Opcode op, ReturnInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.return_(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void stack(Opcode op, StackInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.stack(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void tableSwitch(Opcode op, TableSwitchInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.tableSwitch(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void throw_(Opcode op, ThrowInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.throw_(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+    @Override
+    public void typeCheck(Opcode op, TypeCheckInstruction inst) {
+        for (var visitor : active) {
+            if (visitor instanceof InstructionVisitor iv) {
+                iv.typeCheck(op, inst);
+            } else {
+                visitor.element(inst);
+            }
+        }
+        prune();
+    }
+
+}
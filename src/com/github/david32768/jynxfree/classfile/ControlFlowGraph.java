@@ -0,0 +1,311 @@
+package com.github.david32768.jynxfree.classfile;
+
+import java.lang.classfile.instruction.ExceptionCatch;
+import java.lang.classfile.instruction.LabelTarget;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.CodeModel;
+import java.lang.classfile.Instruction;
+import java.lang.classfile.Label;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// basic blocks are numbered in code order and are ranges of element indices
+// blocks also start at try start and end labels so a block is either all in or all out of a try range
+// returned arrays are shared and must not be modified
+public class ControlFlowGraph {
+
+    private static final int[] NONE = new int[0];
+
+    private record Handler(Label tryStart, Label tryEnd, Label handler) {}
+
+    private final List<CodeElement> elements;
+    private final int[] offsets;
+    private final Map<Label, Integer> labelIndex;
+    private final int[] starts; // element index of start of each block and element count
+    private final int[] blockOf; // element index -> block
+    private final int[][] successors;
+    private final int[][] exceptionSuccessors;
+    private final int[][] predecessors;
+    private final boolean[] fallsOffEnd;
+    private final int[] reversePostorder;
+
+    private ControlFlowGraph(List<CodeElement> elements, int[] offsets, Map<Label, Integer> labelIndex,
+            int[] starts, List<Handler> handlers) {
+        this.elements = elements;
+        this.offsets = offsets;
+        this.labelIndex = labelIndex;
+        this.starts = starts;
+        int blocks = starts.length - 1;
+        this.blockOf = new int[elements.size()];
+        for (int b = 0; b < blocks; ++b) {
+            Arrays.fill(blockOf, starts[b], starts[b + 1], b);
+        }
+        this.successors = new int[blocks][];
+        this.exceptionSuccessors = new int[blocks][];
+        this.predecessors = new int[blocks][];
+        this.fallsOffEnd = new boolean[blocks];
+        edges(handlers);
+        this.reversePostorder = depthFirst();
+    }
+
+    public static ControlFlowGraph of(CodeModel code) {
+        return of(code.elementList(), _ -> false);
+    }
+
+    // split is true for any other labels that must start a block
+    public static ControlFlowGraph of(List<CodeElement> elements, Predicate<Label> split) {
+        int size = elements.size();
+        int[] offsets = new int[size + 1];
+        Map<Label, Integer> labelIndex = new HashMap<>();
+        Set<Label> leaders = new HashSet<>();
+        List<Handler> handlers = new ArrayList<>();
+        boolean[] afterBranch = new boolean[size + 1];
+        afterBranch[0] = true;
+        int offset = 0;
+        for (int i = 0; i < size; ++i) {
+            offsets[i] = offset;
+            switch (elements.get(i)) {
+                case LabelTarget target -> {
+                    labelIndex.put(target.label(), i);
+                    if (split.test(target.label())) {
+                        leaders.add(target.label());
+                    }
+                }
+                case ExceptionCatch handler -> {
+                    handlers.add(new Handler(handler.tryStart(), handler.tryEnd(), handler.handler()));
+                    leaders.add(handler.tryStart());
+                    leaders.add(handler.tryEnd());
+                    leaders.add(handler.handler());
+                }
+                case Instruction inst -> {
+                    offset += Instructions.sizeOfAt(inst, offset);
+                    var targets = Instructions.targets(inst);
+                    leaders.addAll(targets);
+                    afterBranch[i + 1] = !targets.isEmpty() || Opcodes.isUnconditional(inst.opcode());
+                }
+                default -> {}
+            }
+        }
+        offsets[size] = offset;
+        List<Integer> startlist = new ArrayList<>();
+        boolean pending = false; // block must start at next instruction or label
+        for (int i = 0; i < size; ++i) {
+            pending |= afterBranch[i];
+            var element = elements.get(i);
+            boolean leader = element instanceof LabelTarget target && leaders.contains(target.label())
+                    || pending && (element instanceof LabelTarget || element instanceof Instruction);
+            if (leader) {
+                if (startlist.isEmpty() || startlist.getLast() != i) {
+                    startlist.add(i);
+                }
+                pending = false;
+            }
+        }
+        if (startlist.isEmpty() || startlist.getFirst() != 0) {
+            startlist.addFirst(0);
+        }
+        startlist.add(size);
+        int[] starts = startlist.stream().mapToInt(Integer::intValue).toArray();
+        return new ControlFlowGraph(elements, offsets, labelIndex, starts, handlers);
+    }
+
+    private int indexOf(Label label) {
+        Integer index = labelIndex.get(label);
+        if (index == null) {
+            throw new IllegalStateException("label is not bound " + label);
+        }
+        return index;
+    }
+
+    private void edges(List<Handler> handlers) {
+        int blocks = blockCount();
+        // handler h covers blocks [handlerStart[h], handlerEnd[h]) as try labels start blocks
+        int nhandlers = handlers.size();
+        int[] handlerStart = new int[nhandlers];
+        int[] handlerEnd = new int[nhandlers];
+        int[] handlerBlock = new int[nhandlers];
+        for (int h = 0; h < nhandlers; ++h) {
+            var handler = handlers.get(h);
+            handlerStart[h] = blockOf[indexOf(handler.tryStart())];
+            handlerEnd[h] = blockOf[indexOf(handler.tryEnd())];
+            handlerBlock[h] = blockOf(handler.handler());
+        }
+        Integer[] byStart = new Integer[nhandlers];
+        for (int h = 0; h < nhandlers; ++h) {
+            byStart[h] = h;
+        }
+        Arrays.sort(byStart, (h1, h2) -> Integer.compare(handlerStart[h1], handlerStart[h2]));
+        int nextHandler = 0;
+        List<Integer> active = new ArrayList<>(); // in handler order
+        // stamp[s] == b if s is already a successor of b
+        int[] stamp = new int[blocks];
+        int[] exstamp = new int[blocks];
+        Arrays.fill(stamp, -1);
+        Arrays.fill(exstamp, -1);
+        int[] predct = new int[blocks];
+        for (int b = 0; b < blocks; ++b) {
+            Instruction last = null;
+            for (int i = starts[b]; i < starts[b + 1]; ++i) {
+                if (elements.get(i) instanceof Instruction inst) {
+                    last = inst;
+                }
+            }
+            List<Integer> succ = new ArrayList<>();
+            if (last != null) {
+                for (var label : Instructions.targets(last)) {
+                    int target = blockOf(label);
+                    if (stamp[target] != b) {
+                        stamp[target] = b;
+                        succ.add(target);
+                    }
+                }
+            }
+            if (last == null || !Opcodes.isUnconditional(last.opcode())) {
+                if (b + 1 < blocks) {
+                    if (stamp[b + 1] != b) {
+                        stamp[b + 1] = b;
+                        succ.add(b + 1);
+                    }
+                } else {
+                    fallsOffEnd[b] = true;
+                }
+            }
+            int block = b;
+            active.removeIf(h -> handlerEnd[h] <= block);
+            while (nextHandler < nhandlers && handlerStart[byStart[nextHandler]] <= b) {
+                int h = byStart[nextHandler++];
+                if (handlerEnd[h] > b) {
+                    int pos = 0;
+                    while (pos < active.size() && active.get(pos) < h) {
+                        ++pos;
+                    }
+                    active.add(pos, h);
+                }
+            }
+            List<Integer> exsucc = new ArrayList<>();
+            if (last != null) {
+                for (int h : active) {
+                    int target = handlerBlock[h];
+                    if (exstamp[target] != b) {
+                        exstamp[target] = b;
+                        exsucc.add(target);
+                    }
+                }
+            }
+            successors[b] = toArray(succ);
+            exceptionSuccessors[b] = toArray(exsucc);
+            for (int s : successors[b]) {
+                ++predct[s];
+            }
+            for (int s : exceptionSuccessors[b]) {
+                ++predct[s];
+            }
+        }
+        for (int b = 0; b < blocks; ++b) {
+            predecessors[b] = predct[b] == 0? NONE: new int[predct[b]];
+            predct[b] = 0;
+        }
+        for (int b = 0; b < blocks; ++b) {
+            for (int s : successors[b]) {
+                predecessors[s][predct[s]++] = b;
+            }
+            for (int s : exceptionSuccessors[b]) {
+                predecessors[s][predct[s]++] = b;
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.isEmpty()? NONE: list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // iterative depth first search from block 0 over normal and exception edges
+    private int[] depthFirst() {
+        int blocks = blockCount();
+        boolean[] visited = new boolean[blocks];
+        int[] postorder = new int[blocks];
+        int count = 0;
+        int[] blockstack = new int[blocks];
+        int[] edgestack = new int[blocks];
+        blockstack[0] = 0;
+        edgestack[0] = 0;
+        visited[0] = true;
+        int depth = 1;
+        while (depth > 0) {
+            int b = blockstack[depth - 1];
+            int edge = edgestack[depth - 1]++;
+            int nsucc = successors[b].length;
+            if (edge < nsucc + exceptionSuccessors[b].length) {
+                int s = edge < nsucc? successors[b][edge]: exceptionSuccessors[b][edge - nsucc];
+                if (!visited[s]) {
+                    visited[s] = true;
+                    blockstack[depth] = s;
+                    edgestack[depth] = 0;
+                    ++depth;
+                }
+            } else {
+                postorder[count++] = b;
+                --depth;
+            }
+        }
+        int[] result = new int[count];
+        for (int i = 0; i < count; ++i) {
+            result[i] = postorder[count - 1 - i];
+        }
+        return result;
+    }
+
+    public List<CodeElement> elements() {
+        return elements;
+    }
+
+    public int blockCount() {
+        return starts.length - 1;
+    }
+
+    // element index of first element of block
+    public int start(int block) {
+        return starts[block];
+    }
+
+    // element index after last element of block
+    public int end(int block) {
+        return starts[block + 1];
+    }
+
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    public int blockOf(Label label) {
+        return blockOf[indexOf(label)];
+    }
+
+    public int[] successors(int block) {
+        return successors[block];
+    }
+
+    public int[] exceptionSuccessors(int block) {
+        return exceptionSuccessors[block];
+    }
+
+    public int[] predecessors(int block) {
+        return predecessors[block];
+    }
+
+    public boolean fallsOffEnd(int block) {
+        return fallsOffEnd[block];
+    }
+
+    // unreachable blocks are omitted
+    public int[] reversePostorder() {
+        return reversePostorder;
+    }
+
+}
@@ -0,0 +1,302 @@
+package com.github.david32768.jynxfree.classfile;
+
+import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.classfile.attribute.StackMapFrameInfo.VerificationTypeInfo;
+import java.lang.classfile.instruction.DiscontinuedInstruction;
+import java.lang.classfile.instruction.IncrementInstruction;
+import java.lang.classfile.instruction.LabelTarget;
+import java.lang.classfile.instruction.LoadInstruction;
+import java.lang.classfile.instruction.StoreInstruction;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.Instruction;
+import java.lang.classfile.Label;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.TypeKind;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static com.github.david32768.jynxfree.jynx.Global.LOG;
+import static com.github.david32768.jynxfree.my.Message.M625;
+
+import com.github.david32768.jynxfree.jynx.LogUnsupportedOperationException;
+
+// worklist dataflow of local and stack TypeKinds over the ControlFlowGraph checked against the StackMapTable
+// TypeKind.VOID is used for TOP; jsr/ret are not supported
+public class DataflowVerifier {
+
+    private record Frame(TypeKind[] locals, List<TypeKind> stack) {}
+
+    private static final List<TypeKind> HANDLER_STACK = List.of(TypeKind.REFERENCE);
+
+    private final ControlFlowGraph cfg;
+    private final List<CodeElement> elements;
+    private final int maxlocals;
+    private final StackMap stackMap;
+    private final boolean hasFrames;
+    private final Label[] frameLabel; // block -> label with stack map frame
+    private final int[] rpoIndex; // block -> position in reverse postorder
+    private final Frame[] entry;
+    private final BitSet worklist; // positions in reverse postorder
+    private final TypeKindStack stack;
+
+    private DataflowVerifier(ControlFlowGraph cfg, int maxlocals, StackMap stackmap, boolean hasframes,
+            PoolKinds poolkinds) {
+        this.cfg = cfg;
+        this.elements = cfg.elements();
+        this.maxlocals = maxlocals;
+        this.stackMap = stackmap;
+        this.hasFrames = hasframes;
+        int blocks = cfg.blockCount();
+        this.frameLabel = new Label[blocks];
+        this.rpoIndex = new int[blocks];
+        this.entry = new Frame[blocks];
+        this.worklist = new BitSet(blocks);
+        this.stack = new TypeKindStack(poolkinds);
+    }
+
+    public static DataflowVerifier of(MethodModel mm) {
+        return of(mm, PoolKinds.unshared());
+    }
+
+    public static DataflowVerifier of(MethodModel mm, PoolKinds poolkinds) {
+        var code = mm.code().orElseThrow();
+        var elements = code.elementList();
+        for (var element : elements) {
+            if (element instanceof DiscontinuedInstruction) {
+                // "one or more methods contain jsr/ret",
+                throw new LogUnsupportedOperationException(M625);
+            }
+        }
+        int maxlocals = code instanceof CodeAttribute attr? attr.maxLocals(): maxLocals(elements);
+        var stackmap = StackMap.of(mm);
+        boolean hasframes = code.findAttribute(Attributes.stackMapTable()).isPresent();
+        var cfg = ControlFlowGraph.of(elements, label -> stackmap.stackFrameFor(label) != null);
+        var verifier = new DataflowVerifier(cfg, maxlocals, stackmap, hasframes, poolkinds);
+        verifier.index();
+        verifier.entry[0] = verifier.frameOf(stackmap.initialLocals(), List.of());
+        return verifier;
+    }
+
+    private static int maxLocals(List<CodeElement> elements) {
+        int max = 0;
+        for (var element : elements) {
+            if (element instanceof Instruction inst) {
+                var slot = Instructions.slot(inst);
+                if (slot.isPresent()) {
+                    int size = inst instanceof LoadInstruction load? load.typeKind().slotSize()
+                            : inst instanceof StoreInstruction store? store.typeKind().slotSize()
+                            : 1;
+                    max = Math.max(max, slot.get() + size);
+                }
+            }
+        }
+        return max;
+    }
+
+    private void index() {
+        Arrays.fill(rpoIndex, -1);
+        var rpo = cfg.reversePostorder();
+        for (int i = 0; i < rpo.length; ++i) {
+            rpoIndex[rpo[i]] = i;
+        }
+        for (int b = 0; b < cfg.blockCount(); ++b) {
+            for (int i = cfg.start(b); i < cfg.end(b) && !(elements.get(i) instanceof Instruction); ++i) {
+                if (elements.get(i) instanceof LabelTarget target
+                        && stackMap.stackFrameFor(target.label()) != null) {
+                    frameLabel[b] = target.label();
+                }
+            }
+        }
+    }
+
+    public int maxStack() {
+        return stack.maxStack();
+    }
+
+    // blocks are processed in reverse postorder
+    public void verify() {
+        var rpo = cfg.reversePostorder();
+        worklist.set(0);
+        for (int i = worklist.nextSetBit(0); i >= 0; i = worklist.nextSetBit(0)) {
+            worklist.clear(i);
+            run(rpo[i]);
+        }
+    }
+
+    private void run(int block) {
+        var frame = entry[block];
+        var locals = frame.locals().clone();
+        stack.clear();
+        stack.set(frame.stack());
+        Instruction last = null;
+        for (int i = cfg.start(block); i < cfg.end(block); ++i) {
+            if (elements.get(i) instanceof Instruction inst) {
+                try {
+                    instruction(block, inst, locals);
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    String msg = String.format("offset %d %s: %s", cfg.offset(i), inst.opcode(), ex.getMessage());
+                    throw new IllegalStateException(msg, ex);
+                }
+                last = inst;
+            }
+        }
+        var out = new Frame(locals, stack.toList());
+        if (last != null) {
+            for (var label : Instructions.targets(last)) {
+                merge(cfg.blockOf(label), out, true);
+            }
+            if (Opcodes.isUnconditional(last.opcode())) {
+                return;
+            }
+        }
+        if (cfg.fallsOffEnd(block)) {
+            throw new IllegalStateException("code falls off end");
+        }
+        merge(block + 1, out, false);
+    }
+
+    private void instruction(int block, Instruction inst, TypeKind[] locals) {
+        for (int handler : cfg.exceptionSuccessors(block)) {
+            merge(handler, new Frame(locals, HANDLER_STACK), true);
+        }
+        switch (inst) {
+            case LoadInstruction load -> {
+                checkLocal(locals, load.slot(), load.typeKind().asLoadable());
+            }
+            case StoreInstruction store -> {
+                storeLocal(locals, store.slot(), store.typeKind().asLoadable());
+                // as HotSpot the locals after an instruction that writes a local also reach the handlers
+                for (int handler : cfg.exceptionSuccessors(block)) {
+                    merge(handler, new Frame(locals, HANDLER_STACK), true);
+                }
+            }
+            case IncrementInstruction incr -> {
+                checkLocal(locals, incr.slot(), TypeKind.INT);
+            }
+            default -> {}
+        }
+        stack.adjustForInstruction(inst);
+    }
+
+    private void checkLocal(TypeKind[] locals, int slot, TypeKind kind) {
+        if (slot + kind.slotSize() > maxlocals || locals[slot] != kind) {
+            String msg = String.format("local %d is %s but expected %s",
+                    slot, slot < maxlocals? locals[slot]: "undefined", kind);
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
+    private void storeLocal(TypeKind[] locals, int slot, TypeKind kind) {
+        if (slot + kind.slotSize() > maxlocals) {
+            String msg = String.format("local %d is not less than max locals %d", slot, maxlocals);
+            throw new IllegalArgumentException(msg);
+        }
+        if (slot > 0 && locals[slot - 1].slotSize() == 2) {
+            locals[slot - 1] = TypeKind.VOID;
+        }
+        locals[slot] = kind;
+        if (kind.slotSize() == 2) {
+            locals[slot + 1] = TypeKind.VOID;
+        }
+    }
+
+    // incoming locals are copied if kept
+    private void merge(int block, Frame incoming, boolean branch) {
+        var label = frameLabel[block];
+        if (label != null) {
+            var frame = frameOf(stackMap.localsFrameFor(label), stackMap.stackFrameFor(label));
+            checkAssignable(block, incoming, frame);
+            if (entry[block] == null) {
+                entry[block] = frame;
+                worklist.set(rpoIndex[block]);
+            }
+            return;
+        }
+        if (branch && hasFrames) {
+            String msg = String.format("no stack map frame at offset %d", offsetOf(block));
+            throw new IllegalStateException(msg);
+        }
+        var old = entry[block];
+        if (old == null) {
+            entry[block] = new Frame(incoming.locals().clone(), incoming.stack());
+            worklist.set(rpoIndex[block]);
+            return;
+        }
+        checkStack(block, old.stack(), incoming.stack());
+        var locals = old.locals();
+        boolean changed = false;
+        for (int i = 0; i < maxlocals; ++i) {
+            if (locals[i] != TypeKind.VOID && locals[i] != incoming.locals()[i]) {
+                locals[i] = TypeKind.VOID;
+                changed = true;
+            }
+        }
+        if (changed) {
+            worklist.set(rpoIndex[block]);
+        }
+    }
+
+    private int offsetOf(int block) {
+        return cfg.offset(cfg.start(block));
+    }
+
+    private void checkAssignable(int block, Frame incoming, Frame frame) {
+        checkStack(block, frame.stack(), incoming.stack());
+        for (int i = 0; i < maxlocals; ++i) {
+            var kind = frame.locals()[i];
+            if (kind != TypeKind.VOID && kind != incoming.locals()[i]) {
+                String msg = String.format("local %d is %s but stack map frame at offset %d has %s",
+                        i, incoming.locals()[i], offsetOf(block), kind);
+                throw new IllegalStateException(msg);
+            }
+        }
+    }
+
+    private void checkStack(int block, List<TypeKind> expected, List<TypeKind> stack) {
+        if (!expected.equals(stack)) {
+            String msg = String.format("mismatch stack at offset %d, expected = %s actual = %s",
+                    offsetOf(block), expected, stack);
+            throw new IllegalStateException(msg);
+        }
+    }
+
+    private Frame frameOf(List<VerificationTypeInfo> localinfo, List<VerificationTypeInfo> stackinfo) {
+        var locals = new TypeKind[maxlocals];
+        Arrays.fill(locals, TypeKind.VOID);
+        int slot = 0;
+        for (var info : localinfo) {
+            if (slot >= maxlocals) {
+                String msg = String.format("stack map frame locals exceed max locals %d", maxlocals);
+                throw new IllegalStateException(msg);
+            }
+            locals[slot] = StackMap.typeKind(info);
+            slot += StackMap.slotSize(info);
+        }
+        var stacklist = stackinfo.stream()
+                .map(StackMap::typeKind)
+                .toList();
+        return new Frame(locals, stack.intern(stacklist));
+    }
+
+    public static ClassStackChecker.MethodResult check(MethodModel mm) {
+        return check(mm, PoolKinds.unshared());
+    }
+
+    public static ClassStackChecker.MethodResult check(MethodModel mm, PoolKinds poolkinds) {
+        int maxstack = 0;
+        boolean ok = true;
+        try {
+            var verifier = of(mm, poolkinds);
+            verifier.verify();
+            maxstack = verifier.maxStack();
+        } catch (RuntimeException | AssertionError ex) {
+            LOG(ex);
+            ok = false;
+        }
+        String method = mm.methodName().stringValue() + mm.methodType().stringValue();
+        return new ClassStackChecker.MethodResult(method, maxstack, ok, "");
+    }
+
+}
@@ -4,11 +4,13 @@ import static java.lang.classfile.Opcode.*;
 
 import java.lang.classfile.instruction.*;
 
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.CodeModel;
 import java.lang.classfile.Instruction;
 import java.lang.classfile.Opcode;
 import java.util.EnumSet;
 
-public interface InstructionVisitor {
+public interface InstructionVisitor extends CodeElementVisitor {
     
     public void arrayLoad(Opcode op, ArrayLoadInstruction inst);
     public void arrayStore(Opcode op, ArrayStoreInstruction inst);
@@ -36,10 +38,27 @@ public interface InstructionVisitor {
     public void throw_(Opcode op, ThrowInstruction inst);
     public void typeCheck(Opcode op, TypeCheckInstruction inst);
     
+    // other elements are ignored
+    @Override
+    public default void element(CodeElement element) {
+        if (element instanceof Instruction inst) {
+            visit(this, inst);
+        }
+    }
+    
     
     public static final String MISSING = "missing case for op - ";
     public static final String BAD_OP = "misclassified or unknown op - ";
     
+    public static void visit(CodeElementVisitor visitor, CodeModel code) {
+        for (var element : code) {
+            if (visitor.isFinished()) {
+                return;
+            }
+            visitor.element(element);
+        }
+    }
+    
     public static void visit(InstructionVisitor iv, Instruction instruction) {
         var op = instruction.opcode();
         switch (instruction) {
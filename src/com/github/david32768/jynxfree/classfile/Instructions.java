@@ -3,6 +3,7 @@ package com.github.david32768.jynxfree.classfile;
 import static java.lang.classfile.Opcode.*;
 
 import java.lang.classfile.Instruction;
+import java.lang.classfile.Label;
 import java.lang.classfile.instruction.BranchInstruction;
 import java.lang.classfile.instruction.DiscontinuedInstruction;
 import java.lang.classfile.instruction.IncrementInstruction;
@@ -14,10 +15,11 @@ import java.lang.classfile.instruction.SwitchCase;
 import java.lang.classfile.instruction.TableSwitchInstruction;
 import java.lang.classfile.Opcode;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 import static com.github.david32768.jynxfree.my.Message.M629;
 import static com.github.david32768.jynxfree.my.Message.M630;
@@ -46,12 +48,22 @@ public class Instructions {
             this.opcodes = EnumSet.of(opcode1, opcodes);
         }
         
+        private static final OperationType[] BY_OPCODE = new OperationType[Opcode.values().length];
+        
+        static {
+            for (var type : values()) {
+                for (var op : type.opcodes) {
+                    BY_OPCODE[op.ordinal()] = type;
+                }
+            }
+        }
+        
         public static OperationType of(OperatorInstruction opinst) {
-            Opcode op = opinst.opcode();
-            return Stream.of(values())
-                    .filter(ot -> ot.opcodes.contains(op))
-                    .findAny()
-                    .orElseThrow();
+            var type = BY_OPCODE[opinst.opcode().ordinal()];
+            if (type == null) {
+                throw new NoSuchElementException(opinst.opcode().toString());
+            }
+            return type;
         }
     }
 
@@ -69,12 +81,22 @@ public class Instructions {
             this.opcodes = EnumSet.of(opcode1, opcodes);
         }
         
+        private static final BranchType[] BY_OPCODE = new BranchType[Opcode.values().length];
+        
+        static {
+            for (var type : values()) {
+                for (var op : type.opcodes) {
+                    BY_OPCODE[op.ordinal()] = type;
+                }
+            }
+        }
+        
         public static BranchType of(BranchInstruction opinst) {
-            Opcode op = opinst.opcode();
-            return Stream.of(values())
-                    .filter(ot -> ot.opcodes.contains(op))
-                    .findAny()
-                    .orElseThrow();
+            var type = BY_OPCODE[opinst.opcode().ordinal()];
+            if (type == null) {
+                throw new NoSuchElementException(opinst.opcode().toString());
+            }
+            return type;
             
         }
 
@@ -158,4 +180,23 @@ public class Instructions {
         return Optional.ofNullable(slot);
     }
 
+    public static List<Label> targets(Instruction inst) {
+        return switch(inst) {
+            case BranchInstruction branch -> List.of(branch.target());
+            case DiscontinuedInstruction.JsrInstruction jsr -> List.of(jsr.target());
+            case LookupSwitchInstruction swinst -> switchTargets(swinst.defaultTarget(), swinst.cases());
+            case TableSwitchInstruction swinst -> switchTargets(swinst.defaultTarget(), swinst.cases());
+            default -> List.of();
+        };
+    }
+
+    private static List<Label> switchTargets(Label dflt, List<SwitchCase> cases) {
+        List<Label> result = new ArrayList<>(cases.size() + 1);
+        result.add(dflt);
+        for (var switchCase : cases) {
+            result.add(switchCase.target());
+        }
+        return result;
+    }
+
 }
@@ -109,7 +109,7 @@ public class Opcodes {
     
     
     public static boolean isReturn(Opcode opcode) {
-        return RETURNS.contains(opcode);
+        return IS_RETURN[opcode.ordinal()];
     }
     
     private static final EnumSet<Opcode> GO = EnumSet.of(
@@ -122,8 +122,22 @@ public class Opcodes {
             Opcode.TABLESWITCH
     );
     
+    // indexed by ordinal as used for every instruction
+    private static final boolean[] IS_RETURN = new boolean[Opcode.values().length];
+    private static final boolean[] IS_UNCONDITIONAL = new boolean[Opcode.values().length];
+
+    static {
+        for (var opcode : RETURNS) {
+            IS_RETURN[opcode.ordinal()] = true;
+            IS_UNCONDITIONAL[opcode.ordinal()] = true;
+        }
+        for (var opcode : GO) {
+            IS_UNCONDITIONAL[opcode.ordinal()] = true;
+        }
+    }
+    
     public static boolean isUnconditional(Opcode opcode) {
-        return GO.contains(opcode) || isReturn(opcode);
+        return IS_UNCONDITIONAL[opcode.ordinal()];
     }
     
     public static Opcode oppositeBranch(Opcode opcode) {
@@ -0,0 +1,96 @@
+package com.github.david32768.jynxfree.classfile;
+
+import java.lang.classfile.constantpool.ConstantPool;
+import java.lang.classfile.constantpool.PoolEntry;
+import java.lang.classfile.instruction.FieldInstruction;
+import java.lang.classfile.instruction.InvokeDynamicInstruction;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.TypeKind;
+import java.lang.constant.MethodTypeDesc;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// TypeKinds of field, method and invokedynamic descriptors
+// kinds[0] is the field or return kind followed by the parameter kinds in the order they are popped
+// if created for a class the cache may be shared between threads
+// and kinds of entries not from that class are computed each time
+public class PoolKinds {
+
+    private final ConstantPool pool;
+    private final AtomicReferenceArray<TypeKind[]> byIndex;
+    private final Map<PoolEntry, TypeKind[]> byEntry;
+
+    private PoolKinds(ConstantPool pool) {
+        this.pool = pool;
+        this.byIndex = pool == null? null: new AtomicReferenceArray<>(pool.size());
+        this.byEntry = pool == null? new ConcurrentHashMap<>(): null;
+    }
+
+    public static PoolKinds of(ClassModel cm) {
+        return new PoolKinds(cm.constantPool());
+    }
+
+    // keyed by entry e.g. if instructions are not from a parsed class
+    public static PoolKinds unshared() {
+        return new PoolKinds(null);
+    }
+
+    public TypeKind fieldKind(FieldInstruction inst) {
+        var kinds = get(inst.field());
+        if (kinds == null) {
+            kinds = new TypeKind[]{TypeKind.from(inst.typeSymbol())};
+            put(inst.field(), kinds);
+        }
+        return kinds[0];
+    }
+
+    public TypeKind[] methodKinds(InvokeInstruction inst) {
+        var kinds = get(inst.method());
+        if (kinds == null) {
+            kinds = kindsOf(inst.typeSymbol());
+            put(inst.method(), kinds);
+        }
+        return kinds;
+    }
+
+    public TypeKind[] methodKinds(InvokeDynamicInstruction inst) {
+        var kinds = get(inst.invokedynamic());
+        if (kinds == null) {
+            kinds = kindsOf(inst.typeSymbol());
+            put(inst.invokedynamic(), kinds);
+        }
+        return kinds;
+    }
+
+    private static TypeKind[] kindsOf(MethodTypeDesc type) {
+        int count = type.parameterCount();
+        var kinds = new TypeKind[count + 1];
+        kinds[0] = TypeKind.from(type.returnType());
+        for (int i = 0; i < count; ++i) {
+            kinds[count - i] = TypeKind.from(type.parameterType(i));
+        }
+        return kinds;
+    }
+
+    private boolean inPool(PoolEntry entry) {
+        return entry.constantPool() == pool;
+    }
+
+    private TypeKind[] get(PoolEntry entry) {
+        if (byIndex == null) {
+            return byEntry.get(entry);
+        }
+        return inPool(entry)? byIndex.get(entry.index()): null;
+    }
+
+    private void put(PoolEntry entry, TypeKind[] kinds) {
+        if (byIndex == null) {
+            byEntry.put(entry, kinds);
+        } else if (inPool(entry)) {
+            byIndex.set(entry.index(), kinds);
+        }
+    }
+
+}
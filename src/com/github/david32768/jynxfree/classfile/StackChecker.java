@@ -31,7 +31,7 @@ import static com.github.david32768.jynxfree.my.Message.M642;
 import com.github.david32768.jynxfree.jynx.LogAssertionError;
 import com.github.david32768.jynxfree.jynx.LogIllegalStateException;
 
-public class StackChecker {
+public class StackChecker implements CodeElementVisitor {
 
     private static final int MAX_CODESIZE = 2*Short.MAX_VALUE + 1;
 
@@ -46,9 +46,9 @@ public class StackChecker {
     private int offset;
     private boolean lastLabel;
     
-    private StackChecker(Set<Label> jsrlabels, StackMap stackmap) {
+    private StackChecker(Set<Label> jsrlabels, StackMap stackmap, PoolKinds poolkinds) {
 
-        this.stack = new TypeKindStack();
+        this.stack = new TypeKindStack(poolkinds);
         this.labelStack = new HashMap<>();
         this.afterGotoLabels = new ArrayList<>();
         this.jsrLabels = jsrlabels;
@@ -60,7 +60,12 @@ public class StackChecker {
     }
 
     public static StackChecker of(StackMap stackmap) {
-        return new StackChecker(new HashSet<>(), stackmap);
+        return of(stackmap, PoolKinds.unshared());
+    }
+    
+    // poolkinds may be shared by the methods of a class
+    public static StackChecker of(StackMap stackmap, PoolKinds poolkinds) {
+        return new StackChecker(new HashSet<>(), stackmap, poolkinds);
     }
     
     public void setJsrLabels(List<CodeElement> elements) {
@@ -130,6 +135,7 @@ public class StackChecker {
         }
     }
     
+    @Override
     public void element(CodeElement element) {
         switch (element) {
             case Instruction inst -> {
@@ -149,7 +155,7 @@ public class StackChecker {
     public void pseudo(PseudoInstruction pseudo) {
         switch (pseudo) {
             case ExceptionCatch handler -> {
-                var exstack = List.of(TypeKind.REFERENCE);
+                var exstack = stack.intern(List.of(TypeKind.REFERENCE));
                 branch(handler.handler(), exstack);
             }
             case LabelTarget i -> {
@@ -191,7 +197,7 @@ public class StackChecker {
             var typeKindList = stackInfo.stream()
                     .map(StackChecker::convert)
                     .toList();
-            check(typeKindList);
+            check(stack.intern(typeKindList));
         }
         if (isJsrLabel(label)) {
             checkSubroutine();
@@ -271,8 +277,9 @@ public class StackChecker {
         }
     }
 
+    // lists are interned so are usually identical
     private void compare(List<TypeKind> old, List<TypeKind> list) {
-        if (!old.equals(list)) {
+        if (old != list && !old.equals(list)) {
             String msg = String.format("mismatch stack for label, old = %s new = %s",
                     old, list);
             throw new IllegalArgumentException(msg);
@@ -292,7 +299,7 @@ public class StackChecker {
             case DiscontinuedInstruction.JsrInstruction inst -> {
                 var list = new ArrayList<>(stack.toList());
                 list.add(TypeKind.REFERENCE); // return address
-                branch(inst.target(), list);
+                branch(inst.target(), stack.intern(List.copyOf(list)));
                 jsrLabels.add(inst.target());
             }
             case LookupSwitchInstruction inst -> {
@@ -8,52 +8,61 @@ import java.lang.classfile.Instruction;
 import java.lang.classfile.Opcode;
 import java.lang.classfile.TypeKind;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.github.david32768.jynxfree.my.Message.M638;
-import static com.github.david32768.jynxfree.my.Message.M639;
 import static com.github.david32768.jynxfree.my.Message.M640;
 
 import com.github.david32768.jynxfree.jynx.LogIllegalArgumentException;
 
 public class TypeKindStack implements InstructionVisitor {
 
-    private record TwoSlot(TypeKind top, TypeKind next) {
-    
-        public TwoSlot {
-            Objects.requireNonNull(top);
-            Objects.requireNonNull(next);
-            if (top.slotSize() + next.slotSize() != 2) {
-                // "sum of slot sizes for top (%s = %d) and next (%s = %d) not equal to 2"
-                throw new LogIllegalArgumentException(M638, top, top.slotSize(), next, next.slotSize());
-            }
-            if (top == TypeKind.VOID) {
-                // "top TypeKind cannot be VoidType"
-                throw new LogIllegalArgumentException(M639);
-            }
+    private record Effect(TypeKind[] pops, TypeKind[] pushes) {
+
+        private boolean isSameAs(Effect other) {
+            return Arrays.equals(pops, other.pops) && Arrays.equals(pushes, other.pushes);
         }
     }
-    
-    private record OneSlot(TypeKind top) {
-    
-        public OneSlot {
-            Objects.requireNonNull(top);
-            if (top.slotSize() != 1) {
-                // "top slot size for (%s = %d) not 1"
-                throw new LogIllegalArgumentException(M640, top, top.slotSize());
-            }
-       }
-    }
-    
-    private final ArrayList<TypeKind> astack;
+
+    private static final TypeKind[] KINDS = TypeKind.values();
+    // effect of opcodes whose stack effect depends only on the opcode; filled on first use of opcode
+    // shared by stacks on different threads so set and read with volatile semantics
+    // any instruction with the opcode records the same effect so which thread sets it does not matter
+    private static final AtomicReferenceArray<Effect> FIXED_EFFECT = new AtomicReferenceArray<>(Opcode.values().length);
+    private static final int INITIAL_SIZE = 16;
+
+    // kinds are stored as ordinals so that no instruction allocates
+    private byte[] kinds;
+    private int size;
+    // snapshots are interned so equal stacks are the same list
+    private final Map<List<TypeKind>, List<TypeKind>> snapshots;
+    private List<TypeKind> snapshot; // null if stack changed since last toList()
+    private final PoolKinds poolKinds;
+    // not null while recording effect of a fixed effect opcode
+    private List<TypeKind> recordPops;
+    private List<TypeKind> recordPushes;
     
     private int maxstack;
     private int current;
 
     public TypeKindStack() {
-        this.astack = new ArrayList<>();
+        this(PoolKinds.unshared());
+    }
+
+    public TypeKindStack(PoolKinds poolkinds) {
+        this.poolKinds = poolkinds;
+        this.kinds = new byte[INITIAL_SIZE];
+        this.size = 0;
+        this.snapshots = new HashMap<>();
+        this.snapshot = null;
+        this.recordPops = null;
+        this.recordPushes = null;
         this.maxstack = 0;
         this.current = 0;
     }
@@ -63,33 +72,67 @@ public class TypeKindStack implements InstructionVisitor {
     }
 
     public void clear() {
-        astack.clear();
+        size = 0;
+        snapshot = null;
         current = 0;
     }
     
     public boolean isEmpty() {
-        return astack.isEmpty();
+        return size == 0;
+    }
+    
+    private TypeKind kindAt(int index) {
+        return KINDS[kinds[index]];
     }
     
+    // the same list is returned until the stack changes
     public List<TypeKind> toList() {
-        return List.copyOf(astack);
+        if (snapshot == null) {
+            var array = new TypeKind[size];
+            for (int i = 0; i < size; ++i) {
+                array[i] = kindAt(i);
+            }
+            snapshot = intern(List.of(array));
+        }
+        return snapshot;
+    }
+
+    public List<TypeKind> intern(List<TypeKind> list) {
+        var result = snapshots.putIfAbsent(list, list);
+        return result == null? list: result;
     }
 
     public Stream<TypeKind> stream() {
-        return astack.stream();
+        return IntStream.range(0, size)
+                .mapToObj(this::kindAt);
+    }
+    
+    private void ensureCapacity(int required) {
+        if (required > kinds.length) {
+            kinds = Arrays.copyOf(kinds, Math.max(required, 2 * kinds.length));
+        }
+    }
+    
+    private void adjustCurrent(int slots) {
+        snapshot = null;
+        current += slots;
+        maxstack = Math.max(maxstack, current);
     }
     
     private void pushKind(TypeKind typeKind) {
         if (typeKind == TypeKind.VOID) {
             return;
         }
-        astack.add(typeKind.asLoadable());
-        current += typeKind.slotSize();
-        maxstack = Math.max(maxstack, current);
+        if (recordPushes != null) {
+            recordPushes.add(typeKind.asLoadable());
+        }
+        ensureCapacity(size + 1);
+        kinds[size++] = (byte)typeKind.asLoadable().ordinal();
+        adjustCurrent(typeKind.slotSize());
     }
     
     public void set(List<TypeKind> list) {
-        if (astack.isEmpty()) {
+        if (size == 0) {
             for (var kind : list) {
                 pushKind(kind);
             }
@@ -107,23 +150,14 @@ public class TypeKindStack implements InstructionVisitor {
         pushKind(TypeKind.REFERENCE);
     }
 
-    private void push1(OneSlot oneslot) {
-        pushKind(oneslot.top());
-    }
-    
-    private void push2(TwoSlot twoslot) {
-        pushKind(twoslot.next());
-        pushKind(twoslot.top());
-    }
-    
     public TypeKind peek() {
-        int last = astack.size() - 1;
-        return astack.get(last);
+        return kindAt(size - 1);
     }
     
     private TypeKind pop() {
-        int last = astack.size() - 1;
-        var result = astack.remove(last);
+        var result = kindAt(size - 1);
+        --size;
+        snapshot = null;
         current -= result.slotSize();
         return result;
     }
@@ -132,6 +166,9 @@ public class TypeKindStack implements InstructionVisitor {
         if (typeKind == TypeKind.VOID) {
             return;
         }
+        if (recordPops != null) {
+            recordPops.add(typeKind.asLoadable());
+        }
         TypeKind onStack = pop();
         if (onStack != typeKind.asLoadable()) {
             String msg = String.format("top of stack is %s but expected %s",
@@ -148,19 +185,103 @@ public class TypeKindStack implements InstructionVisitor {
         popKind(TypeKind.REFERENCE);
     }
     
-    private OneSlot pop1() {
-        var top = pop();
-        return new OneSlot(top);
+    // number of entries (1) that make up the one slot ending at index
+    private int oneSlot(int index) {
+        var top = kindAt(index);
+        if (top.slotSize() != 1) {
+            // "top slot size for (%s = %d) not 1"
+            throw new LogIllegalArgumentException(M640, top, top.slotSize());
+        }
+        return 1;
     }
     
-    private TwoSlot pop2() {
-        var top = pop();
-        var next = top.slotSize() == 2? TypeKind.VOID: pop();
-        return new TwoSlot(top, next);
+    // number of entries (1 or 2) that make up the two slots ending at index
+    private int twoSlots(int index) {
+        var top = kindAt(index);
+        if (top.slotSize() == 2) {
+            return 1;
+        }
+        var next = kindAt(index - 1);
+        if (next.slotSize() != 1) {
+            // "sum of slot sizes for top (%s = %d) and next (%s = %d) not equal to 2"
+            throw new LogIllegalArgumentException(M638, top, top.slotSize(), next, next.slotSize());
+        }
+        return 2;
     }
-
+    
+    private int slotsOf(int from, int to) {
+        int slots = 0;
+        for (int i = from; i < to; ++i) {
+            slots += kindAt(i).slotSize();
+        }
+        return slots;
+    }
+    
+    // copies the top entries and inserts them below the under entries
+    private void dup(int top, int under) {
+        ensureCapacity(size + top);
+        int base = size - top - under;
+        System.arraycopy(kinds, base, kinds, base + top, top + under);
+        System.arraycopy(kinds, size, kinds, base, top);
+        size += top;
+        adjustCurrent(slotsOf(size - top, size));
+    }
+
+    private void swap() {
+        oneSlot(size - 1);
+        oneSlot(size - 2);
+        byte top = kinds[size - 1];
+        kinds[size - 1] = kinds[size - 2];
+        kinds[size - 2] = top;
+        snapshot = null;
+    }
+    
     public void adjustForInstruction(Instruction instruction) {
-        InstructionVisitor.visit(this, instruction);
+        int ordinal = instruction.opcode().ordinal();
+        var effect = FIXED_EFFECT.get(ordinal);
+        if (effect != null) {
+            for (var kind : effect.pops()) {
+                popKind(kind);
+            }
+            for (var kind : effect.pushes()) {
+                pushKind(kind);
+            }
+        } else if (isFixedEffect(instruction)) {
+            recordPops = new ArrayList<>();
+            recordPushes = new ArrayList<>();
+            try {
+                InstructionVisitor.visit(this, instruction);
+                var recorded = new Effect(recordPops.toArray(TypeKind[]::new),
+                        recordPushes.toArray(TypeKind[]::new));
+                FIXED_EFFECT.compareAndSet(ordinal, null, recorded);
+                assert recorded.isSameAs(FIXED_EFFECT.get(ordinal)):instruction.opcode();
+            } finally {
+                recordPops = null;
+                recordPushes = null;
+            }
+        } else {
+            InstructionVisitor.visit(this, instruction);
+        }
+    }
+
+    private static boolean isFixedEffect(Instruction instruction) {
+        return switch (instruction) {
+            case ConstantInstruction.LoadConstantInstruction _ -> false;
+            case DiscontinuedInstruction _ -> false;
+            case FieldInstruction _ -> false;
+            case InvokeDynamicInstruction _ -> false;
+            case InvokeInstruction _ -> false;
+            case NewMultiArrayInstruction _ -> false;
+            case StackInstruction _ -> false;
+            default -> true;
+        };
+    }
+
+    // kinds[0] is the result kind
+    private void popParameters(TypeKind[] kinds) {
+        for (int i = 1; i < kinds.length; ++i) {
+            popKind(kinds[i]);
+        }
     }
 
     @Override
@@ -224,7 +345,7 @@ public class TypeKindStack implements InstructionVisitor {
 
     @Override
     public void field(Opcode op, FieldInstruction inst) {
-        var kind = TypeKind.from(inst.typeSymbol());
+        var kind = poolKinds.fieldKind(inst);
         switch(op) {
             case GETFIELD -> {
                 popReference();
@@ -248,21 +369,15 @@ public class TypeKindStack implements InstructionVisitor {
 
     @Override
     public void invokeDynamic(Opcode op, InvokeDynamicInstruction inst) {
-        var type = inst.typeSymbol();
-        for (var desc : type.parameterList().reversed()) {
-            var kind = TypeKind.from(desc);
-            popKind(kind);
-        }
-        pushKind(TypeKind.from(type.returnType()));
+        var kinds = poolKinds.methodKinds(inst);
+        popParameters(kinds);
+        pushKind(kinds[0]);
     }
 
     @Override
     public void invoke(Opcode op, InvokeInstruction inst) {
-        var type = inst.typeSymbol();
-        for (var desc : type.parameterList().reversed()) {
-            var kind = TypeKind.from(desc);
-            popKind(kind);
-        }
+        var kinds = poolKinds.methodKinds(inst);
+        popParameters(kinds);
         switch (op) {
             case INVOKEINTERFACE, INVOKESPECIAL, INVOKEVIRTUAL -> {
                 popReference();
@@ -271,7 +386,7 @@ public class TypeKindStack implements InstructionVisitor {
                 assert op == Opcode.INVOKESTATIC:MISSING + op;
             }
         }
-        pushKind(TypeKind.from(type.returnType()));
+        pushKind(kinds[0]);
     }
 
     @Override
@@ -365,54 +480,39 @@ public class TypeKindStack implements InstructionVisitor {
     public void stack(Opcode op, StackInstruction inst) {
         switch(op) {
             case POP -> {
-                pop1();
+                size -= oneSlot(size - 1);
+                snapshot = null;
+                current -= 1;
             }    
             case POP2 -> {
-                pop2();
+                size -= twoSlots(size - 1);
+                snapshot = null;
+                current -= 2;
             }
             case DUP -> {
-                var top = pop1();
-                push1(top);
-                push1(top);
+                dup(oneSlot(size - 1), 0);
             }
             case DUP_X1 -> {
-                var top = pop1();
-                var next = pop1();
-                push1(top);
-                push1(next);
-                push1(top);
+                int top = oneSlot(size - 1);
+                dup(top, oneSlot(size - 1 - top));
             }
             case DUP_X2 -> {
-                var top = pop1();
-                var next2 = pop2();
-                push1(top);
-                push2(next2);
-                push1(top);
+                int top = oneSlot(size - 1);
+                dup(top, twoSlots(size - 1 - top));
             }
             case DUP2 -> {
-                var top2 = pop2();
-                push2(top2);
-                push2(top2);
+                dup(twoSlots(size - 1), 0);
             }
             case DUP2_X1 -> {
-                var top2 = pop2();
-                var next = pop1();
-                push2(top2);
-                push1(next);
-                push2(top2);
+                int top = twoSlots(size - 1);
+                dup(top, oneSlot(size - 1 - top));
             }
             case DUP2_X2 -> {
-                var top2 = pop2();
-                var next2 = pop2();
-                push2(top2);
-                push2(next2);
-                push2(top2);
+                int top = twoSlots(size - 1);
+                dup(top, twoSlots(size - 1 - top));
             }
             case SWAP -> {
-                var top = pop1();
-                var next = pop1();
-                push1(top);
-                push1(next);
+                swap();
             }
             default -> {
                 assert false:MISSING + op;
@@ -1,6 +1,7 @@
 package com.github.david32768.jynxfree.jvm;
 
 import java.lang.classfile.ClassFile;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -128,6 +129,10 @@ public enum JvmVersion {
     }
     
     private static final Map<String,JvmVersion> PARSE_MAP;
+    // distinct releases in order with the first and last version of each
+    private static final long[] RELEASES;
+    private static final JvmVersion[] FIRST_OF_RELEASE;
+    private static final JvmVersion[] LAST_OF_RELEASE;
     
     public final static JvmVersion MIN_VERSION = V1_0_2;
     public final static JvmVersion DEFAULT_VERSION = V21;
@@ -151,6 +156,19 @@ public enum JvmVersion {
             PARSE_MAP.put(version.asClassFile(), version);
             last = version;
         }
+        RELEASES = Arrays.stream(values())
+                .mapToLong(version -> version.release)
+                .distinct()
+                .toArray();
+        FIRST_OF_RELEASE = new JvmVersion[RELEASES.length];
+        LAST_OF_RELEASE = new JvmVersion[RELEASES.length];
+        for (JvmVersion version:values()) {
+            int index = Arrays.binarySearch(RELEASES, version.release);
+            if (FIRST_OF_RELEASE[index] == null) {
+                FIRST_OF_RELEASE[index] = version;
+            }
+            LAST_OF_RELEASE[index] = version;
+        }
         JAVA_RUNTIME_VERSION = from(ClassFile.latestMajorVersion(), ClassFile.PREVIEW_MINOR_VERSION);
         // --enable-preview ClassFile.latestMinorVersion() returns 0 not PREVIEW_MINOR_VERSION; as per its documentation
         MAX_SUPPORTED_VERSION = JAVA_RUNTIME_VERSION.compareTo(SUPPORTED_VERSION) < 0?
@@ -203,15 +221,13 @@ public enum JvmVersion {
     
     private static JvmVersion from(int majmin) {
         long release = Integer.toUnsignedLong(majmin);
-        JvmVersion last = values()[0];
-        for (JvmVersion version:values()) {
-            if (release < version.release) {
-                break;
-            }
-            last = version;
-            if (release == version.release) {
-                break;
-            }
+        int index = Arrays.binarySearch(RELEASES, release);
+        JvmVersion last;
+        if (index >= 0) {
+            last = FIRST_OF_RELEASE[index];
+        } else {
+            int before = -index - 2; // greatest release less than release
+            last = before < 0? values()[0]: LAST_OF_RELEASE[before];
         }
         if (last == V27_PREVIEW && OPTION(GlobalOption.VALHALLA)) {
             last = V27_VALHALLA_PREVIEW;
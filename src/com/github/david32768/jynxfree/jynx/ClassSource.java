@@ -0,0 +1,400 @@
+package com.github.david32768.jynxfree.jynx;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.InputStream;
+import java.io.IOException;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarFile;
+import java.util.zip.ZipFile;
+
+// class bytes from the run-time image, module path and class path, in that order
+// the index is built once and jars are opened once; close releases them
+// classes are read outside any lock so lookups from several threads proceed together
+// a class read from a file is read again if the file has been modified since e.g. by a daemon client
+public class ClassSource implements Closeable {
+
+    private static final long MAX_CACHED_BYTES = 64L << 20;
+
+    private final FileSystem jrt;
+    private final Map<String, String> jrtPackages; // package -> module
+    private final Map<String, ModuleReader> modulePackages; // package -> reader
+    private final List<ModuleReader> readers;
+    private final List<JarFile> jars;
+    private final List<ClassRoot> classPath; // searched in order
+    private final Map<String, CompletableFuture<Cached>> loading; // present while being read
+    private final LinkedHashMap<String, Cached> cache; // access order so eldest is least recently used
+    private final long maxCachedBytes;
+    private final boolean shared;
+
+    private long cachedBytes; // guarded by cache
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    private ClassSource(long maxCachedBytes, boolean shared) {
+        this.jrtPackages = new HashMap<>();
+        this.modulePackages = new HashMap<>();
+        this.readers = new ArrayList<>();
+        this.jars = new ArrayList<>();
+        this.classPath = new ArrayList<>();
+        this.loading = new ConcurrentHashMap<>();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxCachedBytes = maxCachedBytes;
+        this.shared = shared;
+        this.jrt = jrtFileSystem();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    // path and modified are null if the class was not read from a file
+    private record Cached(byte[] bytes, Path path, FileTime modified) {
+
+        private static Cached ofFile(Path path) throws IOException {
+            var modified = Files.getLastModifiedTime(path);
+            return new Cached(Files.readAllBytes(path), path, modified);
+        }
+
+        private static Cached of(byte[] bytes) {
+            return new Cached(bytes, null, null);
+        }
+
+        private boolean isCurrent() {
+            if (path == null) {
+                return true;
+            }
+            try {
+                return modified.equals(Files.getLastModifiedTime(path));
+            } catch (IOException ex) {
+                return false;
+            }
+        }
+
+    }
+
+    private interface ClassRoot {
+        Cached read(String resource) throws IOException;
+    }
+
+    private record DirectoryRoot(Path directory) implements ClassRoot {
+
+        @Override
+        public Cached read(String resource) throws IOException {
+            Path path = directory.resolve(resource);
+            return Files.isRegularFile(path)? Cached.ofFile(path): null;
+        }
+
+    }
+
+    private record JarRoot(JarFile jarfile, Set<String> entries) implements ClassRoot {
+
+        @Override
+        public Cached read(String resource) throws IOException {
+            if (!entries.contains(resource)) {
+                return null;
+            }
+            try (var isx = jarfile.getInputStream(jarfile.getJarEntry(resource))) {
+                return Cached.of(isx.readAllBytes());
+            }
+        }
+
+    }
+
+    private static class SystemSource {
+        private static final ClassSource SOURCE = of(MAX_CACHED_BYTES, true);
+    }
+
+    // for the life of the process; close does nothing
+    public static ClassSource system() {
+        return SystemSource.SOURCE;
+    }
+
+    public static ClassSource of(long maxCachedBytes) {
+        return of(maxCachedBytes, false);
+    }
+
+    private static ClassSource of(long maxCachedBytes, boolean shared) {
+        var source = new ClassSource(maxCachedBytes, shared);
+        source.indexRuntimeImage();
+        source.indexModulePath(System.getProperty("jdk.module.path"));
+        source.indexClassPath(System.getProperty("java.class.path"));
+        return source;
+    }
+
+    private static FileSystem jrtFileSystem() {
+        try {
+            return FileSystems.getFileSystem(URI.create("jrt:/"));
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private void indexRuntimeImage() {
+        if (jrt == null) {
+            return;
+        }
+        var system = ModuleFinder.ofSystem();
+        for (var module : ModuleLayer.boot().modules()) {
+            if (system.find(module.getName()).isPresent()) {
+                for (var pkg : module.getPackages()) {
+                    jrtPackages.putIfAbsent(pkg.replace('.', '/'), module.getName());
+                }
+            }
+        }
+    }
+
+    private static List<Path> pathsOf(String pathstr) {
+        if (pathstr == null || pathstr.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(pathstr.split(File.pathSeparator))
+                .filter(str -> !str.isEmpty())
+                .map(Paths::get)
+                .toList();
+    }
+
+    private void indexModulePath(String pathstr) {
+        var paths = pathsOf(pathstr);
+        if (paths.isEmpty()) {
+            return;
+        }
+        for (var ref : ModuleFinder.of(paths.toArray(Path[]::new)).findAll()) {
+            try {
+                var reader = ref.open();
+                readers.add(reader);
+                for (var pkg : ref.descriptor().packages()) {
+                    modulePackages.putIfAbsent(pkg.replace('.', '/'), reader);
+                }
+            } catch (IOException ex) {
+                // module is ignored as if not present
+            }
+        }
+    }
+
+    private void indexClassPath(String pathstr) {
+        for (var path : pathsOf(pathstr)) {
+            if (Files.isDirectory(path)) {
+                classPath.add(new DirectoryRoot(path));
+            } else if (Files.isRegularFile(path)) {
+                try {
+                    // entry names are base names with META-INF/versions/N/ resolved for this runtime
+                    var jarfile = new JarFile(path.toFile(), true, ZipFile.OPEN_READ, Runtime.version());
+                    jars.add(jarfile);
+                    Set<String> entries = new HashSet<>();
+                    jarfile.versionedStream()
+                            .map(entry -> entry.getName())
+                            .filter(name -> name.endsWith(".class"))
+                            .forEach(entries::add);
+                    classPath.add(new JarRoot(jarfile, entries));
+                } catch (IOException ex) {
+                    // jar is ignored as if not present
+                }
+            }
+        }
+    }
+
+    // the array is shared with the cache and other callers so must not be modified
+    // a class being read by another thread is waited for rather than read again
+    public Optional<byte[]> classBytes(String classname) throws IOException {
+        String resource = classname.replace('.', '/') + ".class";
+        var cached = cached(resource);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached.bytes());
+        }
+        var future = new CompletableFuture<Cached>();
+        var existing = loading.putIfAbsent(resource, future);
+        if (existing != null) {
+            hits.increment();
+            return Optional.ofNullable(join(existing)).map(Cached::bytes);
+        }
+        misses.increment();
+        try {
+            cached = read(resource);
+        } catch (IOException | RuntimeException ex) {
+            loading.remove(resource, future);
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+        // absent classes are not cached
+        if (cached != null) {
+            store(resource, cached);
+        }
+        loading.remove(resource, future);
+        future.complete(cached);
+        return Optional.ofNullable(cached).map(Cached::bytes);
+    }
+
+    // a stale entry is removed; the file is stat'ed outside the lock
+    private Cached cached(String resource) {
+        Cached cached;
+        synchronized (cache) {
+            cached = cache.get(resource);
+        }
+        if (cached == null || cached.isCurrent()) {
+            return cached;
+        }
+        synchronized (cache) {
+            if (cache.remove(resource, cached)) {
+                cachedBytes -= cached.bytes().length;
+            }
+        }
+        return null;
+    }
+
+    // least recently used are evicted first but the one just stored is kept
+    private void store(String resource, Cached cached) {
+        synchronized (cache) {
+            var old = cache.put(resource, cached);
+            if (old != null) {
+                cachedBytes -= old.bytes().length;
+            }
+            cachedBytes += cached.bytes().length;
+            var iter = cache.values().iterator();
+            while (cachedBytes > maxCachedBytes && cache.size() > 1) {
+                var eldest = iter.next();
+                iter.remove();
+                cachedBytes -= eldest.bytes().length;
+            }
+        }
+    }
+
+    private static Cached join(CompletableFuture<Cached> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException ioex) {
+                throw ioex;
+            }
+            throw ex;
+        }
+    }
+
+    // the run-time image and modules are not changed while running so are not checked
+    private Cached read(String resource) throws IOException {
+        int index = resource.lastIndexOf('/');
+        String pkg = index < 0? "": resource.substring(0, index);
+        String module = jrtPackages.get(pkg);
+        if (module != null) {
+            Path path = jrt.getPath("/modules", module, resource);
+            if (Files.isRegularFile(path)) {
+                return Cached.of(Files.readAllBytes(path));
+            }
+        }
+        var reader = modulePackages.get(pkg);
+        if (reader != null) {
+            var is = reader.open(resource);
+            if (is.isPresent()) {
+                try (var isx = is.get()) {
+                    return Cached.of(isx.readAllBytes());
+                }
+            }
+        }
+        for (var root : classPath) {
+            var cached = root.read(resource);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return readSystemResource(resource);
+    }
+
+    // e.g. if the system class loader has been replaced
+    private static Cached readSystemResource(String resource) throws IOException {
+        URL url = ClassLoader.getSystemResource(resource);
+        if (url == null) {
+            return null;
+        }
+        if (url.getProtocol().equals("file")) {
+            try {
+                return Cached.ofFile(Paths.get(url.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                // read as stream
+            }
+        }
+        try (InputStream isx = url.openStream()) {
+            return Cached.of(isx.readAllBytes());
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long cachedBytes() {
+        synchronized (cache) {
+            return cachedBytes;
+        }
+    }
+
+    public int cachedClasses() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (shared) {
+            return;
+        }
+        IOException first = null;
+        for (Closeable closeable : closeables()) {
+            try {
+                closeable.close();
+            } catch (IOException ex) {
+                if (first == null) {
+                    first = ex;
+                } else {
+                    first.addSuppressed(ex);
+                }
+            }
+        }
+        synchronized (cache) {
+            cache.clear();
+            cachedBytes = 0;
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    private List<Closeable> closeables() {
+        List<Closeable> list = new ArrayList<>(readers);
+        list.addAll(jars);
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits = %d misses = %d cached = %d classes (%d bytes)",
+                hits(), misses(), cachedClasses(), cachedBytes());
+    }
+
+}
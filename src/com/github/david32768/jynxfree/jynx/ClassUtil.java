@@ -1,6 +1,5 @@
 package com.github.david32768.jynxfree.jynx;
 
-import java.io.InputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -11,6 +10,7 @@ import static com.github.david32768.jynxfree.my.Message.M289;
 
 public class ClassUtil {
         
+    // byte arrays are not pooled as a ClassModel is parsed lazily from the array it is given
     public static byte[] getClassBytes(String name) throws IOException {
         Path path;
         if (name.endsWith(".class")) {
@@ -21,12 +21,12 @@ public class ClassUtil {
             }
             return Files.readAllBytes(path);
         } else {
-            InputStream isx = ClassLoader.getSystemResourceAsStream(name.replace('.', '/') + ".class");
-            if (isx == null) {
+            var bytes = ClassSource.system().classBytes(name);
+            if (bytes.isEmpty()) {
                 //"%s is not (a known) class"
                 throw new LogIllegalArgumentException(M286, name);
             }
-            return isx.readAllBytes();
+            return bytes.get(); // shared with the cache so must not be modified
         }
     }
 
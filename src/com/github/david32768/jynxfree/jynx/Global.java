@@ -1,5 +1,6 @@
 package com.github.david32768.jynxfree.jynx;
 
+import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
@@ -29,83 +30,160 @@ public class Global {
     
     private JvmVersion jvmVersion;
 
-    private Global() {
+    private Global(PrintStream err) {
         this.options = EnumSet.of(GlobalOption.DEBUG);
         this.addedOptions = EnumSet.noneOf(GlobalOption.class);
-        this.logger  = new Logger("");
+        this.logger  = new Logger("", err);
         this.jvmVersion = null;
         this.main = null;
         this.last = null;
     }
 
-    private Global(MainOption type, EnumSet<GlobalOption> options, Global last) {
+    private Global(MainOption type, EnumSet<GlobalOption> options, Global last, PrintStream err) {
         this.main = type;
         this.options = options;
         this.addedOptions = EnumSet.noneOf(GlobalOption.class);
-        this.logger  = new Logger(type.name().toLowerCase());
+        this.logger  = new Logger(type.name().toLowerCase(), err);
         this.jvmVersion = null;
         this.last = last;
     }
     
-    private static Global global = new Global();
+    // the current Global; a task bound by one of the call methods has its own
+    private static final class Current {
+        
+        private Global global;
+        private final PrintStream err;
+
+        private Current(Global global, PrintStream err) {
+            this.global = global;
+            this.err = err;
+        }
+    }
+    
+    private static final Current PROCESS = new Current(new Global(System.err), System.err);
+    private static final ScopedValue<Current> TASK = ScopedValue.newInstance();
+    
+    private static Current current() {
+        return TASK.orElse(PROCESS);
+    }
+    
+    private static Global global() {
+        return current().global;
+    }
+    
+    private static <R, X extends Throwable> R callIn(Current task, ScopedValue.CallableOp<? extends R, X> op) throws X {
+        return ScopedValue.where(TASK, task).call(op);
+    }
+    
+    // as if a new process; messages are printed to err
+    public static <R, X extends Throwable> R callIsolated(PrintStream err,
+            ScopedValue.CallableOp<? extends R, X> op) throws X {
+        return callIn(new Current(new Global(err), err), op);
+    }
+    
+    // as if newGlobal(main) followed by ADD_OPTIONS(options) but without header
+    public static <R, X extends Throwable> R callIsolated(MainOption main, EnumSet<GlobalOption> options,
+            PrintStream err, ScopedValue.CallableOp<? extends R, X> op) throws X {
+        var global = new Global(main, EnumSet.noneOf(GlobalOption.class), null, err);
+        return callIn(new Current(global, err), () -> {
+            ADD_OPTIONS(options);
+            global.addedOptions.clear();
+            return op.call();
+        });
+    }
+    
+    // op is called with the main option, options and version current when this is called
+    // e.g. to submit to a worker thread
+    public static <R, X extends Throwable> ScopedValue.CallableOp<R, X> withCurrentOptions(PrintStream err,
+            ScopedValue.CallableOp<? extends R, X> op) {
+        var current = global();
+        var options = current.options.clone();
+        var main = current.main;
+        var jvmversion = current.jvmVersion;
+        return () -> {
+            var global = main == null?
+                    new Global(err):
+                    new Global(main, options.clone(), null, err);
+            global.jvmVersion = jvmversion;
+            return callIn(new Current(global, err), op);
+        };
+    }
     
     public static void newGlobal(MainOption type) {
-        global = new Global(type, EnumSet.noneOf(GlobalOption.class), null);
+        var current = current();
+        current.global = new Global(type, EnumSet.noneOf(GlobalOption.class), null, current.err);
         type.printHeader();
     }
     
     public static void pushGlobal(MainOption type) {
         var options = OPTIONS();
-        global = new Global(type, EnumSet.noneOf(GlobalOption.class), global);
+        var current = current();
+        current.global = new Global(type, EnumSet.noneOf(GlobalOption.class), current.global, current.err);
         type.printHeader();
         ADD_RELEVENT_OPTIONS(options);
         printOptions();
     }
     
     public static void popGlobal() {
-        if (global.last == null) {
+        var current = current();
+        if (current.global.last == null) {
             // "unable to pop global as stack empty"
             throw new LogIllegalStateException(M343);
         }
-        global = global.last;
+        current.global = current.global.last;
     }
     
     public static Logger LOGGER() {
-        return global.logger;
+        return global().logger;
+    }
+
+    // where messages of the current task are printed
+    public static PrintStream ERR() {
+        return current().err;
     }
 
     public static void setJvmVersion(JvmVersion jvmversion) {
+        var global = global();
         assert global.jvmVersion == null || global.jvmVersion == jvmversion;
         global.jvmVersion = jvmversion;
     }
     
     public static JvmVersion JVM_VERSION() {
-        assert Objects.nonNull(global.jvmVersion);
-        return global.jvmVersion;
+        var jvmversion = global().jvmVersion;
+        assert Objects.nonNull(jvmversion);
+        return jvmversion;
+    }
+    
+    static JvmVersion JVM_VERSION_OR_NULL() {
+        return global().jvmVersion;
     }
     
     public static boolean CHECK_SUPPORTS(JvmVersioned feature) {
-        if (feature != null && global.jvmVersion != null) {
-            return global.jvmVersion.checkSupports(feature);
+        var jvmversion = global().jvmVersion;
+        if (feature != null && jvmversion != null) {
+            return jvmversion.checkSupports(feature);
         }
         return true;
     }
     
     public static boolean CHECK_CAN_LOAD(ConstantPoolType cp) {
-        if (global.jvmVersion != null) {
-            return cp.checkLoadableBy(global.jvmVersion);
+        var jvmversion = global().jvmVersion;
+        if (jvmversion != null) {
+            return cp.checkLoadableBy(jvmversion);
         }
         return true;
     }
     
     public static boolean SUPPORTS(JvmVersioned feature) {
-        if (feature != null && global.jvmVersion != null) {
-            return global.jvmVersion.supports(feature);
+        var jvmversion = global().jvmVersion;
+        if (feature != null && jvmversion != null) {
+            return jvmversion.supports(feature);
         }
         return feature == null;
     }
     
     public static boolean ADD_OPTION(GlobalOption option) {
+        var global = global();
         if (global.main.usesOption(option)) {
             boolean added = global.options.add(option); 
             if (added) {
@@ -124,17 +202,18 @@ public class Global {
     }
     
     public static void ADD_RELEVENT_OPTIONS(EnumSet<GlobalOption> optionset) {
+        var main = global().main;
         optionset.stream()
-                .filter(opt -> global.main.usesOption(opt))
+                .filter(opt -> main.usesOption(opt))
                 .forEach(Global::ADD_OPTION);
     }
     
     public static boolean OPTION(GlobalOption option) {
-        return global.options.contains(option);
+        return global().options.contains(option);
     }
     
     public static EnumSet<GlobalOption> OPTIONS() {
-        return global.options.clone();
+        return global().options.clone();
     }
     
     public static boolean IS_VALHALLA() {
@@ -143,7 +222,7 @@ public class Global {
     
     public static String[] setOptions(String[] args) {
         String[] parms = setOptionsImpl(args);
-        global.addedOptions.clear();
+        global().addedOptions.clear();
         // "options are %s"
         LOG(M74, OPTIONS());
         // "parameters are %s"
@@ -174,12 +253,14 @@ public class Global {
     }
 
     public static void printOptions() {
+        var global = global();
         global.addedOptions.clear();
         // "options are %s"
         LOG(M81,global.options);
     }
     
     public static void printAddedOptions() {
+        var global = global();
         if (!global.addedOptions.isEmpty()) {
             // "added options are %s"
             LOG(M82,global.addedOptions);
@@ -188,30 +269,30 @@ public class Global {
     }
     
     public static void LOG(JynxMessage msg,Object... objs) {
-        global.logger.log(msg,objs);
+        global().logger.log(msg,objs);
     }
 
     public static void LOG(String linestr, JynxMessage msg, Object... objs) {
-        global.logger.log(linestr, msg, objs);
+        global().logger.log(linestr, msg, objs);
     }
 
     public static void LOG(Throwable ex, JynxMessage msg, Object... objs) {
         if (OPTION(GlobalOption.DEBUG)) {
-            ex.printStackTrace();
+            ex.printStackTrace(current().err);
         }
-        global.logger.log(msg, objs);
+        global().logger.log(msg, objs);
     }
 
     public static void LOG(Throwable ex, String linestr, JynxMessage msg, Object... objs) {
         if (OPTION(GlobalOption.DEBUG)) {
-            ex.printStackTrace();
+            ex.printStackTrace(current().err);
         }
-        global.logger.log(linestr, msg, objs);
+        global().logger.log(linestr, msg, objs);
     }
 
     public static void LOG(Throwable ex) {
         if (OPTION(GlobalOption.DEBUG)) {
-            ex.printStackTrace();
+            ex.printStackTrace(current().err);
         }
         if (ex instanceof LogIllegalArgumentException) {
             return; // already logged
@@ -229,15 +310,15 @@ public class Global {
     }
 
     public static boolean END_MESSAGES(String classname) {
-        return global.logger.printEndInfo(classname);
+        return global().logger.printEndInfo(classname);
     }
     
     public static boolean END_MESSAGES(List<String> parms) {
-        return global.logger.printEndInfo(parms);
+        return global().logger.printEndInfo(parms);
     }
     
     public static MainOption MAIN_OPTION() {
-        return global.main;
+        return global().main;
     }
 
 }
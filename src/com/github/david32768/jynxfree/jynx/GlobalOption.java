@@ -1,7 +1,9 @@
 package com.github.david32768.jynxfree.jynx;
 
 import java.util.function.Function;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.github.david32768.jynxfree.my.Message.*;
@@ -36,6 +38,7 @@ public enum GlobalOption {
     SKIP_STACK(M609), // "do not print stack after each instruction"
     VALHALLA(M601), // "Valhalla - limited support; may change"
     QUICK(M92), // "do not print detailed differences" 
+    PARALLEL(M657), // "run the lines of a .txt file in parallel"
     LDC_ONLY(M130), // "print ldc_w as ldc"
 
     
@@ -95,6 +98,28 @@ public enum GlobalOption {
     private final static String OPTION_PREFIX = "--";
     private final static String ABBREV_PREFIX = "-";
 
+    // external options keyed by folded name or abbreviation; the first option is kept as for findFirst
+    private final static Map<String, GlobalOption> BY_NAME = externalBy(GlobalOption::name);
+    private final static Map<String, GlobalOption> BY_ABBREV = externalBy(opt -> opt.abbrev);
+    
+    private static Map<String, GlobalOption> externalBy(Function<GlobalOption,String> strfn) {
+        return Stream.of(values())
+                .filter(GlobalOption::isExternal)
+                .filter(opt -> strfn.apply(opt) != null)
+                .collect(Collectors.toUnmodifiableMap(opt -> StringUtil.foldCase(strfn.apply(opt)),
+                        opt -> opt, (first, _) -> first));
+    }
+    
+    private static GlobalOption lookup(Map<String, GlobalOption> map, String option, String prefix) {
+        if (!option.startsWith(prefix)) {
+            return null;
+        }
+        String key = option
+                .substring(prefix.length())
+                .replace('-', '_');
+        return map.get(StringUtil.foldCase(key));
+    }
+
     private static boolean isEqual(String myname, String option, String prefix) {
         return myname != null && option.startsWith(prefix)
                 && option
@@ -119,17 +144,17 @@ public enum GlobalOption {
         String optstr = str.startsWith(OPTION_PREFIX)?
                 str:
                 OPTION_PREFIX + str;
-        return Stream.of(values())
-                .filter(GlobalOption::isExternal)
-                .filter(g -> isEqual(g.name(), optstr, OPTION_PREFIX))
-                .findFirst();
+        return Optional.ofNullable(lookup(BY_NAME, optstr, OPTION_PREFIX));
     }
 
+    // e.g. "-" is SYSIN as its abbreviation is ""
     public static Optional<GlobalOption> optArgInstance(String str) {
-        return Stream.of(values())
-                .filter(GlobalOption::isExternal)
-                .filter(g -> g.isArg(str))
-                .findFirst();
+        GlobalOption byname = lookup(BY_NAME, str, OPTION_PREFIX);
+        GlobalOption byabbrev = lookup(BY_ABBREV, str, ABBREV_PREFIX);
+        if (byname == null || byabbrev != null && byabbrev.compareTo(byname) < 0) {
+            return Optional.ofNullable(byabbrev);
+        }
+        return Optional.of(byname);
     }
     
     public String description() {
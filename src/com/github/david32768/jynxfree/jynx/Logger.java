@@ -1,5 +1,6 @@
 package com.github.david32768.jynxfree.jynx;
 
+import java.io.PrintStream;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.LinkedHashSet;
@@ -21,18 +22,25 @@ public class Logger {
     private final Deque<String> lines;
     private final Set<String> endinfo;
     private final String type;
+    private final PrintStream err;
 
     private String currentLine;
     private String lastErrorLine;
     
     private int errct;
     private final int maxerr;
+    private long msgct;
 
     Logger(String type) {
+        this(type, System.err);
+    }
+
+    Logger(String type, PrintStream err) {
         this.contexts = new ArrayDeque<>();
         this.lines = new ArrayDeque<>();
         this.endinfo = new LinkedHashSet<>(); // so order of info messages is reproducible
         this.type = type;
+        this.err = err;
         this.errct = 0;
         this.maxerr = MAX_ERRORS;
     }
@@ -41,6 +49,11 @@ public class Logger {
         return errct;
     }
 
+    // number of messages logged whether printed or not
+    public long messageCount() {
+        return msgct;
+    }
+
     public void setLine(String line) {
         this.currentLine = line;
     }
@@ -62,19 +75,19 @@ public class Logger {
     }
 
     private void printInfo(JynxMessage msg, Object... args) {
-        System.err.println(msg.format(args));
+        err.println(msg.format(args));
     }
     
     private void printLineMessage(JynxMessage msg, Object... args) {
         if (Objects.equals(currentLine,lastErrorLine)) {
         } else {
-            System.err.println();
+            err.println();
             String context = contexts.peekFirst();
             if (context != null && !Objects.equals(context,currentLine)) {
-                System.err.println(context);
+                err.println(context);
             }
             if (currentLine != null) {
-                System.err.println(currentLine);
+                err.println(currentLine);
             }
         }
         lastErrorLine = currentLine;
@@ -106,9 +119,9 @@ public class Logger {
     }
 
     private void printSetInfo(Set<String> info){
-        System.err.println();
+        err.println();
         for (String msg:info) {
-            System.err.println(msg);
+            err.println(msg);
         }
         info.clear();
     }
@@ -126,6 +139,7 @@ public class Logger {
     
     @SuppressWarnings("fallthrough")
     void log(JynxMessage msg, Object... objs) {
+       ++msgct;
        LogMsgType logtype = msgType(msg);
         switch (logtype) {
             case SEVERE -> {
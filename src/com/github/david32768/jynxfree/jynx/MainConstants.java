@@ -5,5 +5,8 @@ public class MainConstants {
     public final static String JX_SUFFIX = ".jx";
     public final static String HINTS_SUFFIX = ".hints";
     public final static String TXT_SUFFIX = ".txt";
+    
+    public final static String DAEMON_END = "#end";
+    public final static String DAEMON_SHUTDOWN = "#shutdown";
 
 }
@@ -1,14 +1,22 @@
 package com.github.david32768.jynxfree.jynx;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
-import java.nio.file.Files;
+import java.io.StringWriter;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,6 +26,7 @@ import static com.github.david32768.jynxfree.jynx.MainConstants.*;
 import static com.github.david32768.jynxfree.jynx.Global.ADD_OPTIONS;
 import static com.github.david32768.jynxfree.jynx.Global.LOG;
 import static com.github.david32768.jynxfree.jynx.Global.LOGGER;
+import static com.github.david32768.jynxfree.jynx.Global.OPTION;
 import static com.github.david32768.jynxfree.jynx.Global.OPTIONS;
 import static com.github.david32768.jynxfree.my.Message.M298;
 import static com.github.david32768.jynxfree.my.Message.M331;
@@ -25,6 +34,8 @@ import static com.github.david32768.jynxfree.my.Message.M4;
 import static com.github.david32768.jynxfree.my.Message.M6;
 import static com.github.david32768.jynxfree.my.Message.M997;
 
+import com.github.david32768.jynxfree.utility.LineSource;
+
 public enum MainOption {
     
     ASSEMBLY("jynx",
@@ -66,7 +77,7 @@ public enum MainOption {
             "txt-file is a .txt file containing [ {options} [class-name|class-file] ]*"    
         ),
         EnumSet.of(USE_STACK_MAP, BASIC_VERIFIER, VERIFIER_PLATFORM, VALHALLA,
-                SKIP_FRAMES, DOWN_CAST, DEBUG, SUPPRESS_WARNINGS, QUICK)
+                SKIP_FRAMES, DOWN_CAST, DEBUG, SUPPRESS_WARNINGS, QUICK, PARALLEL)
     ),
     STRUCTURE("structure", true,
         " {options}  class-name|class_file",
@@ -80,7 +91,7 @@ public enum MainOption {
         List.of(
             "upgrades class to Java Version 7"
         ),
-        EnumSet.of(DEBUG)
+        EnumSet.of(DEBUG, PARALLEL)
     ),
     VERIFY("verify",
         String.format(" {options}  class-name|class_file [%s-file]?", HINTS_SUFFIX),
@@ -90,7 +101,18 @@ public enum MainOption {
                     HINTS_SUFFIX, Directive.dir_hints),
             "adds temporary stack map to verify pre Java V1_7 unless contains jsr,ret"
         ),
-        EnumSet.of(VERIFIER_PLATFORM, DEBUG)
+        EnumSet.of(VERIFIER_PLATFORM, DEBUG, PARALLEL)
+    ),
+    DAEMON("daemon",
+        " {options}  --SYSIN|unix-socket-file",
+        List.of(
+            "keeps running and reads requests, one per line, from SYSIN or a Unix domain socket",
+            "a request is a main-option followed by its {options} and arguments",
+            String.format("the response to a request ends with a line '%s ok' or '%s failed'",
+                    DAEMON_END, DAEMON_END),
+            String.format("a request '%s' stops the daemon", DAEMON_SHUTDOWN)
+        ),
+        EnumSet.of(SYSIN, DEBUG)
     ),
     ;
 
@@ -98,7 +120,7 @@ public enum MainOption {
     private final String usage;
     private final List<String> description;
     private final EnumSet<GlobalOption> options;
-    private final PrintStream batchStream;
+    private final boolean batchErr; // batch summary to err as pw output is the result
 
     private MainOption(String extname, String usage, List<String> description, EnumSet<GlobalOption> options) {
         this(extname, false, usage, description, options);
@@ -109,17 +131,21 @@ public enum MainOption {
         this.usage = " " + extname.toLowerCase() + String.format(usage, JX_SUFFIX);
         this.description = description;
         this.options = options;
-        this.batchStream = batcherr? System.err: System.out;
+        this.batchErr = batcherr;
     }
 
     public boolean run(String[] args) {
         try (PrintWriter pw = new PrintWriter(System.out)) {
-            var main = this.mainOptionService();
-            if (args.length == 1 && args[0].endsWith(TXT_SUFFIX)) {
-                return runList(pw, main, args[0]);
-            }
-            return run(pw, main, args);
+            return run(pw, args);
+        }
+    }
+    
+    public boolean run(PrintWriter pw, String[] args) {
+        var main = this.mainOptionService();
+        if (args.length == 1 && args[0].endsWith(TXT_SUFFIX)) {
+            return runList(pw, main, args[0]);
         }
+        return run(pw, main, args);
     }
     
     private boolean run(PrintWriter pw, MainOptionService main, String[] args) {
@@ -136,67 +162,179 @@ public enum MainOption {
         return success;
     }
     
+    private record LineResult(String[] mainargs, boolean success, String output, String messages) {
+        
+        private LineResult(String[] mainargs, boolean success) {
+            this(mainargs, success, "", "");
+        }
+        
+        private LineResult withOutput(String output, String messages) {
+            return new LineResult(mainargs, success, output, messages);
+        }
+    }
+    
+    private static final int TASKS_PER_THREAD = 4; // limits completed but unreported lines
+    
     private boolean runList(PrintWriter pw, MainOptionService main, String listfile) {
         EnumSet<GlobalOption> baseoptions = OPTIONS();
+        int nthreads = OPTION(PARALLEL)? Runtime.getRuntime().availableProcessors(): 1;
+        ExecutorService executor = nthreads > 1? Executors.newFixedThreadPool(nthreads): null;
+        Deque<Pending> pending = new ArrayDeque<>();
         int ct = 0;
         int okct = 0;
         int errct = 0;
         int parmct = 0;
         long start = System.currentTimeMillis();
-        try {
-            List<String> lines = Files.readAllLines(Paths.get(listfile));
-            for (String line : lines) {
-                line = line.trim();
-                if (line.startsWith(";")
-                        || line.isEmpty()
-                        || line.endsWith("/")
-                        || line.endsWith("\\")
-                        || line.endsWith(".MF")) {
-                    continue;
-                }
-                LOGGER().setLine(line);
-                var args = line.split(" ");
-                Global.newGlobal(this);
-                ADD_OPTIONS(baseoptions);
-                String[] mainargs = Global.setOptions(args);
-                if (mainargs.length == 0 && ct == 0) {
-                    baseoptions = OPTIONS();
-                    continue;
+        try (var source = LineSource.of(Paths.get(listfile))) {
+            IOException readerror = null;
+            try {
+                while (source.next()) {
+                    String line = source.line().trim();
+                    if (line.startsWith(";")
+                            || line.isEmpty()
+                            || line.endsWith("/")
+                            || line.endsWith("\\")
+                            || line.endsWith(".MF")) {
+                        continue;
+                    }
+                    LOGGER().setLine(line);
+                    var args = line.split(" ");
+                    if (ct == 0 && isOptionsOnly(args)) {
+                        Global.newGlobal(this);
+                        ADD_OPTIONS(baseoptions);
+                        Global.setOptions(args);
+                        baseoptions = OPTIONS();
+                        continue;
+                    }
+                    ++ct;
+                    LineResult result;
+                    if (executor == null) {
+                        result = runLine(pw, main, args, baseoptions);
+                    } else {
+                        var options = baseoptions;
+                        pending.addLast(new Pending(args, executor.submit(() -> runTask(args, options))));
+                        if (pending.size() <= TASKS_PER_THREAD * nthreads) {
+                            continue;
+                        }
+                        result = completed(pending.removeFirst());
+                    }
+                    if (report(pw, main, result)) {
+                        ++okct;
+                    } else {
+                        ++errct;
+                    }
                 }
-                ++ct;
-                boolean success;
-                try {
-                    success = run(pw, main, mainargs);
-                } catch (SevereError ex) {
-                    success = false;
-                } catch (Exception ex) {
-                    // "%s"
-                    LOG(M997, ex.getMessage());
-                    success = false;
-                }
-                if (success) {
+            } catch (IOException ex) {
+                // e.g. malformed input; lines already started are still reported
+                readerror = ex;
+            }
+            while (!pending.isEmpty()) {
+                if (report(pw, main, completed(pending.removeFirst()))) {
                     ++okct;
                 } else {
-                    // "%s of %s failed"
-                    batchStream.println(M298.format(main.main(), Arrays.toString(mainargs)));
                     ++errct;
                 }
             }
+            if (readerror != null) {
+                LOG(readerror);
+                ++ct;
+                ++errct;
+                String where = String.format("%s line %d", listfile, source.lineNumber() + 1);
+                batchFormat(pw, "%s%n", M298.format(main.main(), where));
+            }
         } catch (IOException ex) {
             LOG(ex);
             return false;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
         long end = System.currentTimeMillis();
         double minutes = (end - start)/60000.;
-        batchStream.format("%nclasses = %d (ok = %d) (%.2f mins)%n", ct, okct, minutes);
+        batchFormat(pw, "%nclasses = %d (ok = %d) (%.2f mins)%n", ct, okct, minutes);
         if (ct != okct) {
-            batchStream.format("    %6d failed  %6d mainargs%n", errct, parmct);
+            batchFormat(pw, "    %6d failed  %6d mainargs%n", errct, parmct);
         }
-        batchStream.println();
-        batchStream.flush();
+        batchFormat(pw, "%n");
         return errct == 0;
     }
     
+    // to pw or the err stream of the current Global so a daemon request gets all its output
+    private void batchFormat(PrintWriter pw, String format, Object... args) {
+        if (batchErr) {
+            var err = Global.ERR();
+            err.format(format, args);
+            err.flush();
+        } else {
+            pw.format(format, args);
+            pw.flush();
+        }
+    }
+    
+    private static boolean isOptionsOnly(String[] args) {
+        return Arrays.stream(args)
+                .allMatch(arg -> arg.isEmpty() || GlobalOption.mayBeOption(arg));
+    }
+    
+    private LineResult runLine(PrintWriter pw, MainOptionService main, String[] args,
+            EnumSet<GlobalOption> baseoptions) {
+        Global.newGlobal(this);
+        ADD_OPTIONS(baseoptions);
+        String[] mainargs = Global.setOptions(args);
+        boolean success;
+        try {
+            success = run(pw, main, mainargs);
+        } catch (SevereError ex) {
+            success = false;
+        } catch (Exception ex) {
+            // "%s"
+            LOG(M997, ex.getMessage());
+            success = false;
+        }
+        return new LineResult(mainargs, success);
+    }
+
+    // each task has its own service instance
+    private LineResult runTask(String[] args, EnumSet<GlobalOption> baseoptions) {
+        var main = mainOptionService();
+        var output = new StringWriter();
+        var messages = new ByteArrayOutputStream();
+        LineResult result;
+        try (var pw = new PrintWriter(output); var err = new PrintStream(messages)) {
+            result = Global.callIsolated(err, () -> runLine(pw, main, args, baseoptions));
+        }
+        return result.withOutput(output.toString(), messages.toString());
+    }
+    
+    // args are kept so a task that fails to complete is reported with its line
+    private record Pending(String[] args, Future<LineResult> future) {}
+    
+    private static LineResult completed(Pending pending) {
+        try {
+            return pending.future().get();
+        } catch (ExecutionException ex) {
+            LOG(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG(ex);
+        }
+        return new LineResult(pending.args(), false);
+    }
+    
+    private boolean report(PrintWriter pw, MainOptionService main, LineResult result) {
+        var err = Global.ERR();
+        err.print(result.messages());
+        err.flush();
+        pw.print(result.output());
+        pw.flush();
+        if (!result.success()) {
+            // "%s of %s failed"
+            batchFormat(pw, "%s%n", M298.format(main.main(), Arrays.toString(result.mainargs())));
+        }
+        return result.success();
+    }
+    
     public String extname() {
         return extname;
     }
@@ -249,10 +387,12 @@ public enum MainOption {
         return main.get();
     }
     
+    private static final Map<String, MainOption> BY_EXTNAME = Stream.of(values())
+            .collect(Collectors.toUnmodifiableMap(mo -> StringUtil.foldCase(mo.extname), mo -> mo,
+                    (first, _) -> first));
+    
     public static Optional<MainOption> getInstance(String str) {
-        return Arrays.stream(values())
-                .filter(mo->mo.extname.equalsIgnoreCase(str))
-                .findAny();
+        return Optional.ofNullable(BY_EXTNAME.get(StringUtil.foldCase(str)));
     }
 
     public static String mains() {
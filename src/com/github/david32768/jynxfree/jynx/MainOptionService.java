@@ -6,7 +6,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.ServiceLoader;
 
 import static com.github.david32768.jynxfree.my.Message.M219;
 
@@ -59,12 +58,13 @@ public interface MainOptionService {
     }
 
     public static Optional<MainOptionService> find(MainOption main) {
-        var loader = ServiceLoader.load(MainOptionService.class);
-        for (var mainx : loader) {
-            if (mainx.main() == main) {
-                return Optional.of(mainx);
-            }
-        }
-        return Optional.empty();
+        return MainOptionServices.find(main);
+    }
+
+    // for embedded use; replaces any service for the same main option
+    // the same instance is used for every run, including concurrent ones, so it must not keep state
+    // a service found by ServiceLoader is instantiated for each run
+    public static void register(MainOptionService service) {
+        MainOptionServices.register(service);
     }
 }
@@ -0,0 +1,50 @@
+package com.github.david32768.jynxfree.jynx;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
+class MainOptionServices {
+
+    private MainOptionServices() {}
+
+    // providers are found once on first use but each find gets a new instance
+    // so a provider with state is not shared between runs e.g. PARALLEL lines or daemon requests
+    private static class Loaded {
+        
+        private static final Map<MainOption, Supplier<MainOptionService>> PROVIDERS = load();
+
+        private static Map<MainOption, Supplier<MainOptionService>> load() {
+            var providers = new EnumMap<MainOption, Supplier<MainOptionService>>(MainOption.class);
+            var loader = ServiceLoader.load(MainOptionService.class);
+            loader.stream()
+                    .forEach(provider -> providers.putIfAbsent(provider.get().main(), provider));
+            return Collections.unmodifiableMap(providers);
+        }
+    }
+
+    // registered services take precedence over loaded ones
+    private static volatile Map<MainOption, MainOptionService> registered = Collections.emptyMap();
+    
+    static Optional<MainOptionService> find(MainOption main) {
+        var service = registered.get(main);
+        if (service != null) {
+            return Optional.of(service);
+        }
+        var provider = Loaded.PROVIDERS.get(main);
+        return provider == null? Optional.empty(): Optional.of(provider.get());
+    }
+
+    static synchronized void register(MainOptionService service) {
+        var main = Objects.requireNonNull(service.main());
+        var services = new EnumMap<MainOption, MainOptionService>(MainOption.class);
+        services.putAll(registered);
+        services.put(main, service);
+        registered = Collections.unmodifiableMap(services);
+    }
+    
+}
@@ -141,10 +141,28 @@ public enum NameDesc {
         if (str == null) {
             throw new LogIllegalArgumentException(M177, this); // "missing %s"
         }
-        return pattern.matcher(str).matches();
+        boolean ok = switch (this) {
+            case JAVA_ID, UNQUALIFIED_NAME, OP_ID, MODULE_ID, METHOD_ID,
+                    INNER_CLASS_NAME, FIELD_NAME, INTERFACE_METHOD_NAME -> NameScanner.isJavaId(str);
+            case LABEL -> NameScanner.isLabel(str);
+            case METHOD_NAME -> NameScanner.isMethodName(str);
+            case CLASS_NAME, KEY_NAME, PACKAGE_NAME -> NameScanner.isClassName(str);
+            case CLASS_NAME_IN_MODULE, OWNER_VALUE_NAME -> NameScanner.isClassNameInModule(str);
+            case FIELD_DESC -> NameScanner.isFieldDesc(str);
+            case DESC -> NameScanner.isDesc(str);
+            case OP_DESC -> NameScanner.isOpDesc(str);
+            case BASE64 -> NameScanner.isBase64(str);
+            default -> pattern.matcher(str).matches();
+        };
+        assert ok == pattern.matcher(str).matches():name() + " " + str;
+        return ok;
     }
 
     public boolean validate(String str) {
+        return ValidationCache.check(this, str, this::validateUncached);
+    }
+
+    private boolean validateUncached(String str) {
         boolean ok = isValid(str);
         if (ok) {
             if (style != null) {
@@ -0,0 +1,184 @@
+package com.github.david32768.jynxfree.jynx;
+
+// hand-written equivalents of the most used NameDesc regexes
+// scan methods return the index after the match starting at from or -1 if no match
+final class NameScanner {
+
+    private static final boolean[] ID_START = new boolean[128];
+    private static final boolean[] ID_PART = new boolean[128];
+    private static final boolean[] BASE64_MAIN = new boolean[128];
+
+    static {
+        for (int c = 0; c < 128; ++c) {
+            ID_START[c] = Character.isJavaIdentifierStart(c);
+            ID_PART[c] = Character.isJavaIdentifierPart(c);
+            BASE64_MAIN[c] = c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9'
+                    || c == '+' || c == '/';
+        }
+    }
+
+    private NameScanner() {}
+
+    static boolean isJavaId(String str) {
+        return javaId(str, 0) == str.length();
+    }
+
+    static boolean isLabel(String str) {
+        int from = !str.isEmpty() && str.charAt(0) == NameDesc.GENERATED_LABEL_MARKER? 1: 0;
+        return javaId(str, from) == str.length();
+    }
+
+    static boolean isMethodName(String str) {
+        return str.equals("<clinit>") || str.equals("<init>") || isJavaId(str);
+    }
+
+    static boolean isClassName(String str) {
+        return className(str, 0, false) == str.length();
+    }
+
+    static boolean isClassNameInModule(String str) {
+        return className(str, 0, true) == str.length();
+    }
+
+    static boolean isFieldDesc(String str) {
+        return fieldDesc(str, 0) == str.length();
+    }
+
+    static boolean isDesc(String str) {
+        int len = str.length();
+        if (len == 0 || str.charAt(0) != '(') {
+            return false;
+        }
+        int i = 1;
+        while (i < len && str.charAt(i) != ')') {
+            i = fieldDesc(str, i);
+            if (i < 0) {
+                return false;
+            }
+        }
+        if (i == len) {
+            return false;
+        }
+        ++i;
+        return i == len - 1 && str.charAt(i) == 'V' || fieldDesc(str, i) == len;
+    }
+
+    static boolean isOpDesc(String str) {
+        int len = str.length();
+        if (len < 3 || str.charAt(0) != '(' || str.charAt(len - 2) != ')') {
+            return false;
+        }
+        for (int i = 1; i < len - 2; ++i) {
+            if (!isOpStack(str.charAt(i))) {
+                return false;
+            }
+        }
+        char result = str.charAt(len - 1);
+        return result == 'V' || isOpStack(result);
+    }
+
+    static boolean isBase64(String str) {
+        int len = str.length();
+        int i = 0;
+        while (i < len && isBase64Main(str.charAt(i))) {
+            ++i;
+        }
+        if (i == 0) {
+            return false;
+        }
+        int padding = len - i;
+        if (padding > 3) {
+            return false;
+        }
+        for (; i < len; ++i) {
+            if (str.charAt(i) != '=') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOpStack(char c) {
+        return c == 'A' || c == 'I' || c == 'J' || c == 'F' || c == 'D';
+    }
+
+    private static boolean isPrimitive(char c) {
+        return switch (c) {
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z' -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isBase64Main(char c) {
+        return c < BASE64_MAIN.length && BASE64_MAIN[c];
+    }
+
+    private static int javaId(String str, int from) {
+        int len = str.length();
+        if (from >= len) {
+            return -1;
+        }
+        char c = str.charAt(from);
+        int i;
+        if (c < ID_START.length) {
+            if (!ID_START[c]) {
+                return -1;
+            }
+            i = from + 1;
+        } else {
+            int cp = str.codePointAt(from);
+            if (!Character.isJavaIdentifierStart(cp)) {
+                return -1;
+            }
+            i = from + Character.charCount(cp);
+        }
+        while (i < len) {
+            c = str.charAt(i);
+            if (c < ID_PART.length) {
+                if (!ID_PART[c]) {
+                    break;
+                }
+                ++i;
+            } else {
+                int cp = str.codePointAt(i);
+                if (!Character.isJavaIdentifierPart(cp)) {
+                    break;
+                }
+                i += Character.charCount(cp);
+            }
+        }
+        return i;
+    }
+
+    // '/' is not an identifier part so there is no backtracking
+    private static int className(String str, int from, boolean inModule) {
+        int i = javaId(str, from);
+        boolean qualified = false;
+        while (i >= 0 && i < str.length() && str.charAt(i) == '/') {
+            i = javaId(str, i + 1);
+            qualified = true;
+        }
+        return inModule && !qualified? -1: i;
+    }
+
+    private static int fieldDesc(String str, int from) {
+        int len = str.length();
+        int i = from;
+        while (i < len && str.charAt(i) == '[') {
+            ++i;
+        }
+        if (i == len) {
+            return -1;
+        }
+        char c = str.charAt(i);
+        if (isPrimitive(c)) {
+            return i + 1;
+        }
+        if (c != 'L') {
+            return -1;
+        }
+        i = className(str, i + 1, false);
+        return i >= 0 && i < len && str.charAt(i) == ';'? i + 1: -1;
+    }
+
+}
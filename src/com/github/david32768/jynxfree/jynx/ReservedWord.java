@@ -1,6 +1,8 @@
 package com.github.david32768.jynxfree.jynx;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public enum ReservedWord {
@@ -101,10 +103,12 @@ public enum ReservedWord {
     }
 
     
+    private static final Map<String, ReservedWord> BY_EXTERNAL_NAME = Stream.of(values())
+            .collect(Collectors.toUnmodifiableMap(res -> res.external_name, res -> res, (first, _) -> first));
+    
     public static Optional<ReservedWord> getOptInstance(String str) {
-        return Stream.of(values())
-                .filter(res ->res.external_name.equals(str))
-                .findAny();
+        return Optional.ofNullable(str)
+                .map(BY_EXTERNAL_NAME::get);
     }
     
 }
@@ -1,11 +1,8 @@
 package com.github.david32768.jynxfree.jynx;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 
-import static com.github.david32768.jynxfree.jynx.Global.LOG;
-import static com.github.david32768.jynxfree.my.Message.M271;
-import static com.github.david32768.jynxfree.my.Message.M68;
 import static com.github.david32768.jynxfree.my.Message.M69;
 import static com.github.david32768.jynxfree.my.Message.M80;
 import static com.github.david32768.jynxfree.my.Message.M83;
@@ -160,83 +157,16 @@ public class StringUtil {
     
     public static String[] tokenise(String line) {
         // and remove comments which start with " ;"
-        ArrayList<String> tokens = new ArrayList<>();
-        StringState state = StringState.BLANK;
-        char quote = '"';
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < line.length(); ++i) {
-            char c = line.charAt(i);
-            switch (state) {
-                case SLASH -> {
-                    state = StringState.QUOTE;
-                    sb.append(c);
-                }
-                case QUOTE -> {
-                    switch (c) {
-                        case '"', '\'' -> {
-                            if (quote == c) {
-                                state = StringState.ENDQUOTE;
-                            }
-                        }
-                        case '\\' -> state = StringState.SLASH;
-                    }
-                    sb.append(c);
-                }
-                case ENDQUOTE -> {
-                    // last character was closing quote
-                    if (!Character.isWhitespace(c)) {
-                        // "Quoted string not followed by white space; blank inserted before '%c'"
-                        LOG(line,M68,c);
-                        --i;    // reread character
-                    }
-                    tokens.add(sb.toString());
-                    sb = new StringBuilder();
-                    state = StringState.BLANK;
-                }
-                case BLANK -> {
-                    if (!Character.isWhitespace(c)) {
-                        switch(c) {
-                            case ';' -> {
-                                state = StringState.COMMENT;   // ignore characters
-                            }
-                            case '"', '\'' -> {
-                                state = StringState.QUOTE;
-                                quote = c;
-                                sb.append(c);                
-                            }
-                            default-> {
-                                state = StringState.UNQUOTED;
-                                sb.append(c);                
-                            }
-                        }
-                    }
-                }
-                case COMMENT -> {
-                    // last token was blank semicolon i.e. comment start
-                    break;
-                }
-                case UNQUOTED -> {
-                    // not in quoted string
-                    if (Character.isWhitespace(c)) {
-                        tokens.add(sb.toString());
-                        sb = new StringBuilder();
-                        state = StringState.BLANK;
-                    } else {
-                        sb.append(c);                
-                    }
-                }
-                default -> throw new LogUnexpectedEnumValueException(state);
+        var cursor = new TokenCursor(line);
+        String[] tokens = new String[8];
+        int count = 0;
+        while (cursor.next()) {
+            if (count == tokens.length) {
+                tokens = Arrays.copyOf(tokens, 2 * count);
             }
+            tokens[count++] = cursor.token();
         }
-        switch (state) {
-            case QUOTE, SLASH -> {
-                LOG(M271,sb.toString()); // "incomplete quoted string %s"
-            }
-        }
-        if (sb.length() != 0) {
-            tokens.add(sb.toString());
-        }
-        return tokens.toArray(String[]::new);
+        return Arrays.copyOf(tokens, count);
     }
     
     public static boolean isVisibleAscii(int c) {
@@ -264,6 +194,15 @@ public class StringUtil {
                 .collect(Collectors.joining());
     }
     
+    // strings are equalsIgnoreCase if and only if their folded forms are equal
+    public static String foldCase(String str) {
+        char[] chars = str.toCharArray();
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+    
     public static boolean isLowerCaseAlpha(String str) {
         return str.chars()
                 .allMatch(Character::isLowerCase);
@@ -24,12 +24,18 @@ public enum Style {
     }
     
     public void check(String str) {
+        ValidationCache.check(this, str, this::checkUncached);
+    }
+    
+    // any problem is logged
+    private boolean checkUncached(String str) {
         try {
             validfn.accept(str);
         } catch(IllegalArgumentException ex) {
             LOG(ex);
             LOG(M295,this,ex.getMessage()); // "%s is invalid: %s"
         }
+        return true;
     }
     
 }
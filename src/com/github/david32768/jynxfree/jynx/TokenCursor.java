@@ -0,0 +1,86 @@
+package com.github.david32768.jynxfree.jynx;
+
+import static com.github.david32768.jynxfree.jynx.Global.LOG;
+import static com.github.david32768.jynxfree.my.Message.M271;
+import static com.github.david32768.jynxfree.my.Message.M68;
+
+// tokens of a line as offsets; a String is only created by token()
+// a token is a quoted string (including quotes) or a run of non white space
+// a token starting with ';' starts a comment which ends the line
+public final class TokenCursor {
+
+    private static final boolean[] ASCII_WHITESPACE = new boolean[128];
+
+    static {
+        for (int c = 0; c < ASCII_WHITESPACE.length; ++c) {
+            ASCII_WHITESPACE[c] = Character.isWhitespace(c);
+        }
+    }
+
+    private final String line;
+    private int pos;
+    private int start;
+    private int end;
+
+    public TokenCursor(String line) {
+        this.line = line;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c < ASCII_WHITESPACE.length? ASCII_WHITESPACE[c]: Character.isWhitespace(c);
+    }
+
+    public boolean next() {
+        int len = line.length();
+        int i = pos;
+        while (i < len && isWhitespace(line.charAt(i))) {
+            ++i;
+        }
+        if (i == len || line.charAt(i) == ';') {
+            pos = len;
+            return false;
+        }
+        start = i;
+        char quote = line.charAt(i);
+        if (quote != '"' && quote != '\'') {
+            while (i < len && !isWhitespace(line.charAt(i))) {
+                ++i;
+            }
+            end = i;
+            pos = i;
+            return true;
+        }
+        ++i;
+        boolean closed = false;
+        while (i < len && !closed) {
+            char c = line.charAt(i++);
+            if (c == '\\') {
+                if (i == len) {
+                    break;
+                }
+                ++i;
+            } else {
+                closed = c == quote;
+            }
+        }
+        end = i;
+        pos = i;
+        if (!closed) {
+            LOG(M271, token()); // "incomplete quoted string %s"
+        } else if (i < len) {
+            char c = line.charAt(i);
+            if (isWhitespace(c)) {
+                ++pos;
+            } else {
+                // "Quoted string not followed by white space; blank inserted before '%c'"
+                LOG(line, M68, c);
+            }
+        }
+        return true;
+    }
+
+    public String token() {
+        return line.substring(start, end);
+    }
+
+}
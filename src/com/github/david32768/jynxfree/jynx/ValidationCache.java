@@ -0,0 +1,56 @@
+package com.github.david32768.jynxfree.jynx;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import static com.github.david32768.jynxfree.jynx.Global.LOGGER;
+import static com.github.david32768.jynxfree.jynx.Global.OPTION;
+import static com.github.david32768.jynxfree.jynx.GlobalOption.WARN_STYLE;
+
+import com.github.david32768.jynxfree.jvm.JvmVersion;
+
+// remembers checks that succeeded without logging a message so repeating them is a lookup
+// the result of a check may depend on the jvm version (reserved words) and WARN_STYLE
+public class ValidationCache {
+
+    private static final int MAX_ENTRIES = 1 << 16;
+
+    private record Key(Object check, String str, JvmVersion jvmversion, boolean warnstyle) {}
+
+    public record Stats(long hits, long misses, long entries, long clears) {}
+
+    private static final Set<Key> VALID = ConcurrentHashMap.newKeySet();
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder CLEARS = new LongAdder();
+
+    private ValidationCache() {}
+
+    static boolean check(Object check, String str, Predicate<String> validfn) {
+        var key = new Key(check, str, Global.JVM_VERSION_OR_NULL(), OPTION(WARN_STYLE));
+        if (VALID.contains(key)) {
+            HITS.increment();
+            return true;
+        }
+        MISSES.increment();
+        var logger = LOGGER();
+        long before = logger.messageCount();
+        boolean ok = validfn.test(str);
+        if (ok && logger.messageCount() == before) {
+            if (VALID.size() >= MAX_ENTRIES) {
+                // wholesale clear is cheaper than tracking recency and the working set soon returns
+                VALID.clear();
+                CLEARS.increment();
+            }
+            VALID.add(key);
+        }
+        return ok;
+    }
+
+    public static Stats stats() {
+        return new Stats(HITS.sum(), MISSES.sum(), VALID.size(), CLEARS.sum());
+    }
+
+}
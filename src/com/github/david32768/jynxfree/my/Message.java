@@ -153,6 +153,13 @@ public enum Message implements JynxMessage {
     M653(ERROR,"bytecode %d is not in range [%d, %d]"),
     M654(ERROR,"bytecode %d cannot be prefixed with wide"),
     M656(ERROR,"Opcode %s requires value to be %d, but is %d"),
+    M657(BLANK,"run the lines of a .txt file in parallel"),
+    M658(INFO,"%s is reading requests from %s"),
+    M659(ERROR,"main option %s cannot be requested from %s"),
+    M660(WARNING,"%d of %d classes could not be transformed and have been copied unchanged"),
+    M661(FINE,"iterative branch relaxation saved %d bytes in method %s"),
+    M662(INFO,"%s has stopped"),
+    M663(FINE,"validation cache since start: %d hits, %d misses, %d entries, %d clears"),
     M902(ERROR,"unknown ASM stack frame type (%d)"),
     M904(ERROR,"unknown JVM stack frame type (%d)"),
     M905(ERROR,"unexpected StringState %s"),
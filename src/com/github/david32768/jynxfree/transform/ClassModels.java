@@ -14,6 +14,11 @@ public class ClassModels {
 
     private ClassModels() {}
     
+    // use if more than one of the following is required
+    public static ClassSummary summary(ClassModel cm) {
+        return ClassSummary.of(cm);
+    }
+
     public static Optional<Opcode> findDiscontinuedOpcode(ClassModel cm) {
         return cm.methods().stream()
                 .flatMap(mm -> findDiscontinuedOpcode(mm).stream())
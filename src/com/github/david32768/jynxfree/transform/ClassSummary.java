@@ -0,0 +1,86 @@
+package com.github.david32768.jynxfree.transform;
+
+import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.classfile.instruction.DiscontinuedInstruction;
+import java.lang.classfile.instruction.LookupSwitchInstruction;
+import java.lang.classfile.instruction.TableSwitchInstruction;
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.Opcode;
+import java.util.List;
+import java.util.Optional;
+
+// facts about a class gathered in one pass over the code of each method
+public record ClassSummary(ClassModel classModel, int majorVersion, int minorVersion, List<MethodSummary> methods) {
+
+    public record MethodSummary(MethodModel method, Optional<Opcode> discontinuedOpcode, boolean hasStackMap,
+            int codeSize, int switchCount) {
+
+        private static MethodSummary of(MethodModel mm) {
+            Opcode discontinued = null;
+            boolean stackmap = false;
+            int codesize = 0;
+            int switches = 0;
+            var code = mm.code();
+            if (code.isPresent()) {
+                for (var element : code.get()) {
+                    switch (element) {
+                        case DiscontinuedInstruction inst -> {
+                            if (discontinued == null) {
+                                discontinued = inst.opcode();
+                            }
+                        }
+                        case LookupSwitchInstruction _ -> ++switches;
+                        case TableSwitchInstruction _ -> ++switches;
+                        default -> {}
+                    }
+                }
+                stackmap = code.get().findAttribute(Attributes.stackMapTable()).isPresent();
+                if (code.get() instanceof CodeAttribute attr) {
+                    codesize = attr.codeLength();
+                }
+            }
+            return new MethodSummary(mm, Optional.ofNullable(discontinued), stackmap, codesize, switches);
+        }
+    }
+
+    public static ClassSummary of(ClassModel cm) {
+        var methods = cm.methods().stream()
+                .map(MethodSummary::of)
+                .toList();
+        return new ClassSummary(cm, cm.majorVersion(), cm.minorVersion(), methods);
+    }
+
+    public Optional<Opcode> discontinuedOpcode() {
+        return methods.stream()
+                .flatMap(ms -> ms.discontinuedOpcode().stream())
+                .findAny();
+    }
+
+    public List<MethodModel> discontinuedMethods() {
+        return methods.stream()
+                .filter(ms -> ms.discontinuedOpcode().isPresent())
+                .map(MethodSummary::method)
+                .toList();
+    }
+
+    public boolean hasStackMap() {
+        return methods.stream()
+                .anyMatch(MethodSummary::hasStackMap);
+    }
+
+    public int maxCodeSize() {
+        return methods.stream()
+                .mapToInt(MethodSummary::codeSize)
+                .max()
+                .orElse(0);
+    }
+
+    public int switchCount() {
+        return methods.stream()
+                .mapToInt(MethodSummary::switchCount)
+                .sum();
+    }
+
+}
@@ -8,6 +8,7 @@ import java.lang.classfile.instruction.DiscontinuedInstruction;
 import java.lang.classfile.Label;
 import java.lang.classfile.Opcode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,69 +26,55 @@ public class CodeArrayBuilder {
 
     private static final int MAX_OFFSET = 65535;
 
-    private record Offset(int min, int max) {
+    private static final int MAX_IF_OFFSET = Short.MAX_VALUE;
+    private static final int MIN_IF_OFFSET = Short.MIN_VALUE;
+    private static final int INITIAL_LABELS = 64;
 
-        private static final int MAX_IF_OFFSET = Short.MAX_VALUE;
-        private static final int MIN_IF_OFFSET = Short.MIN_VALUE;
-    
-        public Offset {
-            assert min >= 0;
-            assert max >= min;
-        }
-
-        public Offset adjust(Instruction inst) {
-            int sz = Instructions.sizeOfAt(inst, min);
-            int adj = Instructions.largeBranchAdjustment(inst, min);
-            return new Offset(min + sz, max + sz + adj);
-        }
-        
-        public Offset adjustDown(BranchInstruction inst) {
-            int sz = Instructions.sizeOfAt(inst, min);
-            int adj = Instructions.largeBranchAdjustment(inst, min);
-            return new Offset(min - sz, max - sz - adj);
-        }
-        
-        public int over() {
-            return max - min;
-        }
-        
-        public boolean small(int actual, int over) {
-            assert actual >= 0 && actual <= MAX_OFFSET;
-            if (min == max || over == 0) {
-                return actual + MIN_IF_OFFSET <= min
-                    && actual + MAX_IF_OFFSET >= max;                
-            }
-            assert max - min >= over;
-            return actual + MAX_IF_OFFSET >= max - over;
-        }
-        
-        public Offset actual(int actual) {
-            if (actual < min || actual > max) {
-                // "actual offset %d is not in range [%d,%d]"
-                throw new LogIllegalStateException(M632, actual, min , max);
-            }
-            return new Offset(actual, actual);
-        }
-        
+    // ONE_PASS decides each branch as it is reached using the [min,max] offset of its target
+    // ITERATIVE starts with all branches short and widens those out of range until none change
+    public enum BranchRelaxation {
+        ONE_PASS,
+        ITERATIVE,
+        ;
     }
-    
+
     private final List<CodeElement> code;
-    private final Map<Label,Offset> offsetMap;
+    private final Map<Label,Integer> labelIds;
+    private final BranchRelaxation relaxation;
+
+    // indexed by label id; min and max possible offsets until offset is known
+    private int[] labelMin;
+    private int[] labelMax;
+    private int[] labelIndex; // index in code
 
-    private Offset offsets;
+    private int minOffset;
+    private int maxOffset;
     private int wideBranchState;
     private Label iflab;
+    private int codeSize;
+    private int onePassSize;
 
-    private CodeArrayBuilder() {
+    private CodeArrayBuilder(BranchRelaxation relaxation) {
         this.code = new ArrayList<>();
-        this.offsetMap = new HashMap<>();
-        this.offsets = new Offset(0,0);
+        this.labelIds = new HashMap<>();
+        this.relaxation = relaxation;
+        this.labelMin = new int[INITIAL_LABELS];
+        this.labelMax = new int[INITIAL_LABELS];
+        this.labelIndex = new int[INITIAL_LABELS];
+        this.minOffset = 0;
+        this.maxOffset = 0;
         this.wideBranchState = 0;
         this.iflab = null;
+        this.codeSize = -1;
+        this.onePassSize = -1;
     }
 
     public static CodeArrayBuilder of() {
-        return new CodeArrayBuilder();
+        return new CodeArrayBuilder(BranchRelaxation.ONE_PASS);
+    }
+
+    public static CodeArrayBuilder of(BranchRelaxation relaxation) {
+        return new CodeArrayBuilder(relaxation);
     }
 
     public CodeArrayBuilder opcode(Opcode opcode) {
@@ -138,8 +125,13 @@ public class CodeArrayBuilder {
 
     private CodeArrayBuilder append(CodeElement element) {
         switch (element) {
-            case Label label -> offsetMap.put(label, offsets);
-            case Instruction inst -> offsets = offsets.adjust(inst);
+            case Label label -> bind(label);
+            case Instruction inst -> {
+                int sz = Instructions.sizeOfAt(inst, minOffset);
+                int adj = Instructions.largeBranchAdjustment(inst, minOffset);
+                minOffset += sz;
+                maxOffset += sz + adj;
+            }
             default -> {}
         }
 
@@ -149,94 +141,220 @@ public class CodeArrayBuilder {
     
     private BranchInstruction removeLast() {
         var br = (BranchInstruction)code.removeLast();
-        offsets = offsets.adjustDown(br);
+        int sz = Instructions.sizeOfAt(br, minOffset);
+        int adj = Instructions.largeBranchAdjustment(br, minOffset);
+        minOffset -= sz;
+        maxOffset -= sz + adj;
         return br;
     }
     
     public int minSize() {
-        return offsets.min;
+        return minOffset;
     }
     
     public int maxSize() {
-        return offsets.max;
+        return maxOffset;
     }
     
+    // valid after atEnd
+    public int codeSize() {
+        return codeSize;
+    }
+
+    // valid after atEnd; bytes saved by ITERATIVE compared with ONE_PASS
+    // 0 if the ONE_PASS layout is invalid e.g. an offset is greater than MAX_OFFSET
+    public int bytesSaved() {
+        return onePassSize < 0? 0: onePassSize - codeSize;
+    }
+
     public void atEnd(CodeBuilder builder) {
+        boolean[] wide;
+        if (relaxation == BranchRelaxation.ITERATIVE) {
+            // one pass is only used for bytesSaved so must not fail
+            onePassSize = decideOnePass(false) == null? -1: codeSize;
+            wide = decideIterative();
+        } else {
+            wide = decideOnePass(true);
+            onePassSize = codeSize;
+        }
+        emit(builder, wide);
+    }
+
+    private static boolean isBranch(CodeElement element) {
+        return element instanceof BranchInstruction || element instanceof DiscontinuedInstruction.JsrInstruction;
+    }
+    
+    private static int sizeOf(CodeElement element, int offset, boolean wide) {
+        return switch (element) {
+            case BranchInstruction br when br.opcode() == Opcode.GOTO ->
+                wide? Opcode.GOTO_W.sizeIfFixed(): Opcode.GOTO.sizeIfFixed();
+            case BranchInstruction br ->
+                wide? Opcodes.oppositeBranch(br.opcode()).sizeIfFixed() + Opcode.GOTO_W.sizeIfFixed()
+                        : br.opcode().sizeIfFixed();
+            case DiscontinuedInstruction.JsrInstruction _ ->
+                wide? Opcode.JSR_W.sizeIfFixed(): Opcode.JSR.sizeIfFixed();
+            case Instruction inst -> Instructions.sizeOfAt(inst, offset);
+            default -> 0;
+        };
+    }
+
+    private static Label targetOf(CodeElement element) {
+        return switch (element) {
+            case BranchInstruction br -> br.target();
+            case DiscontinuedInstruction.JsrInstruction jsr -> jsr.target();
+            default -> throw new AssertionError();
+        };
+    }
+
+    // if not check returns null instead of logging and throwing if the layout is invalid
+    private boolean[] decideOnePass(boolean check) {
+        boolean[] wide = new boolean[code.size()];
         int offset = 0;
         int over = 0;
-        for (var element : code) {
+        for (int i = 0; i < code.size(); ++i) {
+            var element = code.get(i);
             switch (element) {
                 case Label label -> {
-                    var was = setLabelOffset(label, offset);
-                    assert over <= was.over();
-                    over = was.over();
-                    builder.with(element);
+                    if (!check && !isInRange(label, offset)) {
+                        return null;
+                    }
+                    int was = setLabelOffset(label, offset);
+                    assert over <= was;
+                    over = was;
                 }
-                case BranchInstruction br when br.opcode() == Opcode.GOTO -> {
-                    var target = br.target();
-                    boolean small = isSmallBranch(target, offset, over);
+                case Instruction inst when isBranch(inst) -> {
+                    if (!check && offset > MAX_OFFSET) {
+                        return null;
+                    }
+                    boolean small = isSmallBranch(targetOf(inst), offset, over);
+                    wide[i] = !small;
+                    offset += sizeOf(inst, offset, wide[i]);
                     if (small) {
-                        builder.with(br);
-                        offset += Opcode.GOTO.sizeIfFixed();
-                        over += Instructions.largeBranchAdjustment(br, offset);
-                    } else {
-                        builder.goto_w(br.target());
-                        offset += Opcode.GOTO_W.sizeIfFixed();                        
+                        over += Instructions.largeBranchAdjustment(inst, offset);
                     }
+                }
+                case Instruction inst -> {
+                    offset += Instructions.sizeOfAt(inst, offset);
+                }
+                case null -> throw new NullPointerException();
+                default -> {}
+            }
+        }
+        codeSize = offset;
+        return wide;
+    }
+
+    // terminates as branches are only ever widened
+    private boolean[] decideIterative() {
+        int size = code.size();
+        boolean[] wide = new boolean[size];
+        int[] at = new int[size];
+        boolean changed = true;
+        while (changed) {
+            int offset = 0;
+            for (int i = 0; i < size; ++i) {
+                at[i] = offset;
+                offset += sizeOf(code.get(i), offset, wide[i]);
+            }
+            codeSize = offset;
+            changed = false;
+            for (int i = 0; i < size; ++i) {
+                var element = code.get(i);
+                if (!wide[i] && isBranch(element)) {
+                    checkOffset(at[i]);
+                    int displacement = at[labelIndex[idOf(targetOf(element))]] - at[i];
+                    if (displacement < Short.MIN_VALUE || displacement > Short.MAX_VALUE) {
+                        wide[i] = true;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return wide;
+    }
+
+    private void emit(CodeBuilder builder, boolean[] wide) {
+        for (int i = 0; i < code.size(); ++i) {
+            var element = code.get(i);
+            if (!wide[i]) {
+                builder.with(element);
+                continue;
+            }
+            switch (element) {
+                case BranchInstruction br when br.opcode() == Opcode.GOTO -> {
+                    builder.goto_w(br.target());
                 }                            
                 case BranchInstruction brif -> {
                     var opcode = brif.opcode();
                     assert opcode != Opcode.GOTO_W;
-                    var target = brif.target();
-                    boolean small = isSmallBranch(target, offset, over);
-                    if (small) {
-                        builder.with(brif);
-                        offset += opcode.sizeIfFixed();
-                        over += Instructions.largeBranchAdjustment(brif, offset);
-                    } else {
-                        var opcodex = Opcodes.oppositeBranch(opcode);
-                        Label after = builder.newLabel();
-                        builder.with(BranchInstruction.of(opcodex, after))
-                            .goto_w(target)
-                            .labelBinding(after);
-                        offset += opcodex.sizeIfFixed() + Opcode.GOTO_W.sizeIfFixed();
-                    }
+                    var opcodex = Opcodes.oppositeBranch(opcode);
+                    Label after = builder.newLabel();
+                    builder.with(BranchInstruction.of(opcodex, after))
+                        .goto_w(brif.target())
+                        .labelBinding(after);
                 }
                 case DiscontinuedInstruction.JsrInstruction jsr ->  {
-                    Label target = jsr.target();
-                    boolean small = isSmallBranch(target, offset, over);
-                    if (small) {
-                        builder.with(jsr);
-                        offset += Opcode.JSR.sizeIfFixed();
-                        over += Instructions.largeBranchAdjustment(jsr, offset);
-                    } else {
-                        builder.with(DiscontinuedInstruction.JsrInstruction.of(Opcode.JSR_W, target));
-                        offset += Opcode.JSR_W.sizeIfFixed();                        
-                    }
-                }
-                case Instruction inst -> {
-                    builder.with(inst);
-                    offset += Instructions.sizeOfAt(inst, offset);
+                    builder.with(DiscontinuedInstruction.JsrInstruction.of(Opcode.JSR_W, jsr.target()));
                 }
-                case null -> throw new NullPointerException();
-                default -> builder.with(element);
+                default -> throw new AssertionError();
             }
         }
     }
 
-    private Offset setLabelOffset(Label label, int offset) {
-        var was = offsetMap.get(label);
-        offsetMap.put(label, was.actual(offset));
-        return was;
+    private void bind(Label label) {
+        int id = labelIds.computeIfAbsent(label, _ -> labelIds.size());
+        if (id == labelMin.length) {
+            labelMin = Arrays.copyOf(labelMin, 2 * id);
+            labelMax = Arrays.copyOf(labelMax, 2 * id);
+            labelIndex = Arrays.copyOf(labelIndex, 2 * id);
+        }
+        assert minOffset >= 0 && maxOffset >= minOffset;
+        labelMin[id] = minOffset;
+        labelMax[id] = maxOffset;
+        labelIndex[id] = code.size();
+    }
+
+    private int idOf(Label label) {
+        return labelIds.get(label);
+    }
+
+    private boolean isInRange(Label label, int actual) {
+        int id = idOf(label);
+        return actual >= labelMin[id] && actual <= labelMax[id];
+    }
+
+    // returns previous max - min
+    private int setLabelOffset(Label label, int actual) {
+        int id = idOf(label);
+        int min = labelMin[id];
+        int max = labelMax[id];
+        if (actual < min || actual > max) {
+            // "actual offset %d is not in range [%d,%d]"
+            throw new LogIllegalStateException(M632, actual, min , max);
+        }
+        labelMin[id] = actual;
+        labelMax[id] = actual;
+        return max - min;
     }
     
-    private boolean isSmallBranch(Label target, int offset, int over) {
+    private static void checkOffset(int offset) {
         if (offset < 0 || offset > MAX_OFFSET) {
             // "offset %d is not in range [%s,%s]"
             throw new LogIllegalArgumentException(M644, offset, 0, MAX_OFFSET);
         }
-        var laboff = offsetMap.get(target); 
-        return laboff.small(offset, over);
+    }
+
+    private boolean isSmallBranch(Label target, int offset, int over) {
+        checkOffset(offset);
+        int id = idOf(target);
+        int min = labelMin[id];
+        int max = labelMax[id];
+        if (min == max || over == 0) {
+            return offset + MIN_IF_OFFSET <= min
+                && offset + MAX_IF_OFFSET >= max;                
+        }
+        assert max - min >= over;
+        return offset + MAX_IF_OFFSET >= max - over;
     }
 
 }
@@ -3,44 +3,41 @@ package com.github.david32768.jynxfree.transform;
 import java.lang.classfile.ClassTransform;
 import java.lang.classfile.CodeTransform;
 import java.lang.classfile.MethodModel;
+import java.lang.classfile.MethodTransform;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.List;
 
+// no state is kept so the ClassTransform can be used by several threads at once
 public class FilteredCodeTransform {
 
-    private final Predicate<MethodModel> methodFilter; 
-    
-    private MethodModel method;
+    private FilteredCodeTransform() {}
 
-    private FilteredCodeTransform(Predicate<MethodModel> methodFilter) {
-        this.methodFilter = methodFilter;
-    }
-    
     public static ClassTransform classTransformOf(List<Function<MethodModel, CodeTransform>> transformers) {
          return classTransformOf(mm -> true, transformers);
     }
-    
+
     public static ClassTransform classTransformOf(Predicate<MethodModel> methodFilter,
             List<Function<MethodModel, CodeTransform>> transformers) {
-        var filterct = new FilteredCodeTransform(methodFilter);
-        CodeTransform ct = CodeTransform.ACCEPT_ALL;
-        for (var ctfn : transformers) {
-            ct = ct.andThen(CodeTransform.ofStateful(() -> filterct.supply(ctfn)));
-        }
-        return ClassTransform.transformingMethodBodies(filterct::filter, ct);        
+        var ctfns = List.copyOf(transformers);
+        return (builder, element) -> {
+            if (element instanceof MethodModel mm && methodFilter.test(mm)) {
+                builder.transformMethod(mm, MethodTransform.transformingCode(codeTransformOf(mm, ctfns)));
+            } else {
+                builder.with(element);
+            }
+        };
     }
-    
+
     public static Function<MethodModel, CodeTransform> supplierOf(CodeTransform ct) {
         return mm -> ct;
     }
-    
-    private boolean filter(MethodModel mm) {
-        method = mm;
-        return methodFilter.test(mm);
-    }
-    
-    private CodeTransform supply(Function<MethodModel, CodeTransform> fn) {
-        return fn.apply(method);
+
+    private static CodeTransform codeTransformOf(MethodModel mm, List<Function<MethodModel, CodeTransform>> ctfns) {
+        CodeTransform ct = CodeTransform.ACCEPT_ALL;
+        for (var ctfn : ctfns) {
+            ct = ct.andThen(ctfn.apply(mm));
+        }
+        return ct;
     }
 }
@@ -12,31 +12,43 @@ import java.util.Optional;
 
 import static com.github.david32768.jynxfree.jynx.Global.LOG;
 import static com.github.david32768.jynxfree.my.Message.M645;
+import static com.github.david32768.jynxfree.my.Message.M661;
 
 import com.github.david32768.jynxfree.classfile.SmallInstructions;
+import com.github.david32768.jynxfree.transform.CodeArrayBuilder.BranchRelaxation;
 
 public class LargeCodeBranchTransform implements CodeTransform {
 
     private static final int MAX_OFFSET = 65535;
  
     private final Optional< MethodModel> method;
+    private final BranchRelaxation relaxation;
     private CodeArrayBuilder lcb;
 
-    private LargeCodeBranchTransform(MethodModel method) {
+    private LargeCodeBranchTransform(MethodModel method, BranchRelaxation relaxation) {
         this.method = Optional.ofNullable(method);
+        this.relaxation = relaxation;
     }
 
     public static Function<MethodModel, CodeTransform> supplier() {
-        return LargeCodeBranchTransform::new;
+        return supplier(BranchRelaxation.ONE_PASS);
+    }
+
+    public static Function<MethodModel, CodeTransform> supplier(BranchRelaxation relaxation) {
+        return mm -> new LargeCodeBranchTransform(mm, relaxation);
     }
 
     public static CodeTransform of() {
-        return new LargeCodeBranchTransform(null);
+        return of(BranchRelaxation.ONE_PASS);
+    }
+    
+    public static CodeTransform of(BranchRelaxation relaxation) {
+        return new LargeCodeBranchTransform(null, relaxation);
     }
     
     @Override
     public void atStart(CodeBuilder builder) {
-        lcb = CodeArrayBuilder.of();
+        lcb = CodeArrayBuilder.of(relaxation);
     }
     
     @Override
@@ -62,6 +74,10 @@ public class LargeCodeBranchTransform implements CodeTransform {
             LOG(M645,lcb.maxSize(), methodName(), MAX_OFFSET);
         }
         lcb.atEnd(builder);
+        if (lcb.bytesSaved() > 0) {
+            // "iterative branch relaxation saved %d bytes in method %s"
+            LOG(M661, lcb.bytesSaved(), methodName());
+        }
     }
 
     private String methodName() {
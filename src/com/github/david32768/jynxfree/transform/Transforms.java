@@ -20,17 +20,30 @@ public class Transforms {
             = ClassTransform.transformingMethodBodies(CodeTransform.ACCEPT_ALL);
     
     public static byte[] addStackMap(ClassFile classfile, ClassModel cm) {
-        return addStackMap(classfile, cm, ALL_METHODS);
+        return addStackMap(classfile, ClassSummary.of(cm));
+    }
+
+    public static byte[] addStackMap(ClassFile classfile, ClassSummary summary) {
+        return addStackMap(classfile, summary, ALL_METHODS);
+    }
+
+    // e.g. for JarTransformer
+    public static byte[] addStackMapForVerification(ClassFile classfile, byte[] bytes) {
+        return addStackMapForVerification(classfile, classfile.parse(bytes));
     }
 
     public static byte[] addStackMapForVerification(ClassFile classfile, ClassModel cm) {
+        return addStackMapForVerification(classfile, ClassSummary.of(cm));
+    }
+
+    public static byte[] addStackMapForVerification(ClassFile classfile, ClassSummary summary) {
         ClassTransform ct = ALL_METHODS
                 .andThen(Transforms::changeToV7);
-        return addStackMap(classfile, cm, ct);
+        return addStackMap(classfile, summary, ct);
     }
 
-    private static byte[] addStackMap(ClassFile classfile, ClassModel cm, ClassTransform ct) {
-        if (ClassModels.findDiscontinuedOpcode(cm).isPresent()) {
+    private static byte[] addStackMap(ClassFile classfile, ClassSummary summary, ClassTransform ct) {
+        if (summary.discontinuedOpcode().isPresent()) {
             // "one or more methods contain jsr/ret",
             throw new LogUnsupportedOperationException(M625);
         }
@@ -38,7 +51,7 @@ public class Transforms {
                     ClassFile.StackMapsOption.GENERATE_STACK_MAPS,
         // PATCH_DEAD_CODE is the default but as it alters the bytecode it is deliberately added
                     ClassFile.DeadCodeOption.PATCH_DEAD_CODE)
-                .transformClass(cm, ct);
+                .transformClass(summary.classModel(), ct);
         return bytes;
     }
 
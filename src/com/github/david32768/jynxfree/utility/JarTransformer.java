@@ -0,0 +1,161 @@
+package com.github.david32768.jynxfree.utility;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static com.github.david32768.jynxfree.jynx.Global.LOG;
+import static com.github.david32768.jynxfree.my.Message.M116;
+import static com.github.david32768.jynxfree.my.Message.M660;
+
+import com.github.david32768.jynxfree.jynx.Global;
+
+public class JarTransformer {
+
+    private static final int TASKS_PER_THREAD = 4; // limits memory used by transformed but unwritten classes
+
+    private record Transformed(byte[] bytes, String messages) {}
+
+    private record Pending(ZipEntry entry, byte[] original, Future<Transformed> future) {}
+
+    private final ZipFile zipfile;
+    private final ZipOutputStream zos;
+    private final UnaryOperator<byte[]> classfn;
+
+    private int classct;
+    private int failct;
+
+    private JarTransformer(ZipFile zipfile, ZipOutputStream zos, UnaryOperator<byte[]> classfn) {
+        this.zipfile = zipfile;
+        this.zos = zos;
+        this.classfn = classfn;
+        this.classct = 0;
+        this.failct = 0;
+    }
+
+    // classes are transformed by nthreads threads and written in the order of the input jar
+    // non-class entries are copied; classfn may return null or throw if a class cannot be transformed
+    public static boolean transform(Path injar, Path outjar, UnaryOperator<byte[]> classfn, int nthreads) {
+        try (var zipfile = new ZipFile(injar.toFile());
+                var zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(outjar)))) {
+            var transformer = new JarTransformer(zipfile, zos, classfn);
+            transformer.transform(Math.max(1, nthreads));
+            zos.finish();
+            // "%s created - size %d bytes"
+            LOG(M116, outjar, Files.size(outjar));
+            if (transformer.failct != 0) {
+                // "%d of %d classes could not be transformed and have been copied unchanged"
+                LOG(M660, transformer.failct, transformer.classct);
+            }
+            return transformer.failct == 0;
+        } catch (IOException ex) {
+            LOG(ex);
+            return false;
+        }
+    }
+
+    private void transform(int nthreads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads);
+        try {
+            Deque<Pending> pending = new ArrayDeque<>();
+            var entries = zipfile.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                    pending.addLast(new Pending(entry, null, null));
+                } else {
+                    byte[] bytes;
+                    try (var is = zipfile.getInputStream(entry)) {
+                        bytes = is.readAllBytes();
+                    }
+                    var messages = new ByteArrayOutputStream();
+                    var op = Global.withCurrentOptions(new PrintStream(messages),
+                            () -> transform(bytes, messages));
+                    pending.addLast(new Pending(entry, bytes, executor.submit(op::call)));
+                }
+                while (pending.size() > TASKS_PER_THREAD * nthreads
+                        || !pending.isEmpty() && pending.peekFirst().future() == null) {
+                    write(pending.removeFirst());
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Transformed transform(byte[] bytes, ByteArrayOutputStream messages) {
+        byte[] result;
+        try {
+            result = classfn.apply(bytes);
+        } catch (RuntimeException ex) {
+            LOG(ex);
+            result = null;
+        } catch (AssertionError ex) { // includes SevereError
+            result = null;
+        }
+        return new Transformed(result, messages.toString());
+    }
+
+    private void write(Pending pending) throws IOException {
+        var entry = pending.entry();
+        if (pending.future() == null) {
+            copy(entry);
+            return;
+        }
+        ++classct;
+        var transformed = completed(pending.future());
+        Global.ERR().print(transformed.messages());
+        byte[] bytes = transformed.bytes();
+        if (bytes == null) {
+            ++failct;
+            bytes = pending.original();
+        }
+        var out = new ZipEntry(entry.getName());
+        out.setLastModifiedTime(entry.getLastModifiedTime());
+        zos.putNextEntry(out);
+        zos.write(bytes);
+        zos.closeEntry();
+    }
+
+    private static Transformed completed(Future<Transformed> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            LOG(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG(ex);
+        }
+        return new Transformed(null, "");
+    }
+
+    private void copy(ZipEntry entry) throws IOException {
+        // keeps method, size and crc; a deflated entry is deflated again
+        var out = new ZipEntry(entry);
+        out.setCompressedSize(-1);
+        zos.putNextEntry(out);
+        if (!entry.isDirectory()) {
+            try (var is = zipfile.getInputStream(entry)) {
+                is.transferTo(zos);
+            }
+        }
+        zos.closeEntry();
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.github.david32768.jynxfree.utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// lines of a file decoded a buffer at a time so the whole file is never in memory
+// line terminators are as for BufferedReader.readLine() i.e. "\n", "\r" or "\r\n"
+// malformed input is an error as for Files.readAllLines but only after the lines before it
+public class LineSource implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final StringBuilder partial;
+
+    private boolean eof;
+    private boolean flushed;
+    private boolean skipLF;
+    private CoderResult error; // reported after the chars decoded before it
+    private int lineNumber;
+    private String line;
+
+    private LineSource(ReadableByteChannel channel, Charset charset) {
+        this.channel = channel;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        this.chars = CharBuffer.allocate(BUFFER_SIZE);
+        this.chars.flip();
+        this.partial = new StringBuilder();
+    }
+
+    public static LineSource of(Path path) throws IOException {
+        return of(path, StandardCharsets.UTF_8);
+    }
+
+    public static LineSource of(Path path, Charset charset) throws IOException {
+        return new LineSource(Files.newByteChannel(path), charset);
+    }
+
+    public boolean next() throws IOException {
+        partial.setLength(0);
+        do {
+            char[] array = chars.array();
+            int start = chars.position();
+            int limit = chars.limit();
+            if (skipLF && start < limit) {
+                skipLF = false;
+                if (array[start] == '\n') {
+                    ++start;
+                }
+            }
+            int i = start;
+            while (i < limit && array[i] != '\n' && array[i] != '\r') {
+                ++i;
+            }
+            if (i < limit) {
+                if (partial.isEmpty()) {
+                    line = new String(array, start, i - start);
+                } else {
+                    line = partial.append(array, start, i - start).toString();
+                }
+                skipLF = array[i] == '\r';
+                chars.position(i + 1);
+                ++lineNumber;
+                return true;
+            }
+            partial.append(array, start, i - start);
+            chars.position(i);
+        } while (fill());
+        if (partial.isEmpty()) {
+            line = null;
+            return false;
+        }
+        line = partial.toString();
+        ++lineNumber;
+        return true;
+    }
+
+    // current line without terminator
+    public String line() {
+        return line;
+    }
+
+    // one-based number of current line
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    private boolean fill() throws IOException {
+        if (error != null) {
+            error.throwException();
+        }
+        chars.clear();
+        while (chars.position() == 0 && !flushed) {
+            if (!eof && channel.read(bytes) < 0) {
+                eof = true;
+            }
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, eof);
+            bytes.compact();
+            if (result.isError()) {
+                if (chars.position() == 0) {
+                    result.throwException();
+                }
+                error = result;
+                break;
+            }
+            if (eof && result.isUnderflow()) {
+                flushed = decoder.flush(chars).isUnderflow();
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -7,5 +7,7 @@ module com.github.david32768.JynxFree {
     exports com.github.david32768.jynxfree.transform;
     exports com.github.david32768.jynxfree.utility;
     uses com.github.david32768.jynxfree.jynx.MainOptionService;
+    provides com.github.david32768.jynxfree.jynx.MainOptionService
+            with com.github.david32768.jynxfree.MainDaemon;
     
 }